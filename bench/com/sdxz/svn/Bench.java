@@ -0,0 +1,126 @@
+package com.sdxz.svn;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * @discription: 简单的基准测试框架：先预热若干轮，再测量若干轮，每轮在固定时间内反复执行，输出每次操作的平均耗时和标准差。
+ *               操作的返回值交给 {@link #consume(Object)}，避免被 JIT 当作无用代码消除。
+ *               测量期间 System.out 被丢弃，被测代码中的逐条路径输出不计入耗时。
+ */
+class Bench {
+
+	interface Operation {
+		/**
+		 * @param i 第几次调用，用于轮流选取测试数据
+		 */
+		Object run(int i) throws Exception;
+	}
+
+	private static volatile int sink;
+
+	private final int warmupIterations;
+	private final int measureIterations;
+	private final long iterationMillis;
+
+	Bench(int warmupIterations, int measureIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measureIterations = measureIterations;
+		this.iterationMillis = iterationMillis;
+	}
+
+	static void consume(Object value) {
+		if (value != null) {
+			sink ^= System.identityHashCode(value);
+		}
+	}
+
+	/**
+	 * @return 每次操作的平均纳秒数
+	 */
+	double run(String name, Operation operation) throws Exception {
+		PrintStream out = System.out;
+		double[] results = new double[measureIterations];
+		int counter = 0;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+		try {
+			for (int i = 0; i < warmupIterations; i++) {
+				counter = iteration(operation, counter, null);
+			}
+			for (int i = 0; i < measureIterations; i++) {
+				double[] result = new double[1];
+				counter = iteration(operation, counter, result);
+				results[i] = result[0];
+			}
+		} finally {
+			System.setOut(out);
+		}
+
+		double mean = 0;
+		for (int i = 0; i < results.length; i++) {
+			mean += results[i];
+		}
+		mean /= results.length;
+		double variance = 0;
+		for (int i = 0; i < results.length; i++) {
+			variance += (results[i] - mean) * (results[i] - mean);
+		}
+		double stddev = results.length > 1 ? Math.sqrt(variance / (results.length - 1)) : 0;
+		out.println(padRight(name, 40) + pad(format(mean), 14) + " +- " + pad(format(stddev), 12) + " ns/op "
+				+ pad(format(mean > 0 ? 1e9 / mean : 0), 14) + " ops/s");
+		return mean;
+	}
+
+	private int iteration(Operation operation, int counter, double[] result) throws Exception {
+		long deadline = System.nanoTime() + iterationMillis * 1000000L;
+		long start = System.nanoTime();
+		long now;
+		int ops = 0;
+		do {
+			// 每 16 次检查一次时间，减少 nanoTime 本身的开销
+			for (int i = 0; i < 16; i++) {
+				consume(operation.run(counter++));
+			}
+			ops += 16;
+			now = System.nanoTime();
+		} while (now < deadline);
+		if (result != null) {
+			result[0] = (double) (now - start) / ops;
+		}
+		return counter;
+	}
+
+	static void header() {
+		System.out.println(padRight("benchmark", 40) + pad("mean", 14) + "   " + pad("stddev", 12) + "       "
+				+ pad("throughput", 14));
+	}
+
+	private static String format(double value) {
+		if (value >= 100) {
+			return String.valueOf(Math.round(value));
+		}
+		return String.valueOf(Math.round(value * 100) / 100.0);
+	}
+
+	private static String pad(String value, int width) {
+		StringBuffer padded = new StringBuffer(value);
+		while (padded.length() < width) {
+			padded.insert(0, ' ');
+		}
+		return padded.toString();
+	}
+
+	private static String padRight(String value, int width) {
+		StringBuffer padded = new StringBuffer(value);
+		while (padded.length() < width) {
+			padded.append(' ');
+		}
+		return padded.toString();
+	}
+}
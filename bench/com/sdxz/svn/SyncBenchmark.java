@@ -0,0 +1,198 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @discription: 打包热点路径的基准测试：FilePath.setFileName、replaceSrcWebRoot、isSameProject、
+ *               getJavaRelativeFiles / FileCopy.findFile、FileCopy.copy_。
+ *               测试数据是生成的变更路径和临时工作区，工作区的 class 文件数由第一个参数指定（默认 100000，按整包取整），结束后删除。
+ *               用法：java com.sdxz.svn.SyncBenchmark [文件数] [只运行名称包含该字符串的测试]
+ */
+public class SyncBenchmark {
+
+	private static final String PROJECT = "bench";
+	private static final String PACKAGE = "com/sdxz/bench";
+	private static final int CLASSES_PER_PACKAGE = 100;
+	/** 每隔几个类带内部类 */
+	private static final int INNER_CLASS_EVERY = 4;
+	private static final int FILES_PER_PACKAGE = CLASSES_PER_PACKAGE + 2 * CLASSES_PER_PACKAGE / INNER_CLASS_EVERY;
+	private static final int FILE_SIZE = 2048;
+	private static final int PATHS = 4096;
+
+	private final int packages;
+	private final File workspace;
+	private final String base;
+	private final String[] changedPaths = new String[PATHS];
+	private final String[] fileNames = new String[PATHS];
+	private final String[] contexts = new String[PATHS];
+	private final String[] dirs = new String[PATHS];
+	private final String[] outers = new String[PATHS];
+	private final Synchronizer synchronizer;
+	private final CopyPipeline pipeline = new CopyPipeline();
+	private final OutputIndex outputIndex = new OutputIndex();
+
+	SyncBenchmark(int files) throws IOException {
+		this.packages = Math.max(1, files / FILES_PER_PACKAGE);
+		this.workspace = File.createTempFile("svnbench", "");
+		if (!workspace.delete() || !workspace.mkdir()) {
+			throw new IOException("cannot create workspace: " + workspace);
+		}
+		this.base = new File(workspace, "source").getPath().replace('\\', '/');
+
+		SvnDomain domain = new SvnDomain();
+		domain.setSvnUrl("svn://10.110.1.24/svn/yaojian/" + PROJECT + "/trunk");
+		domain.setLocalRepository(base);
+		domain.setLocalDestLocation(new File(workspace, "dest").getPath());
+		domain.setSvnVersions(new int[] { 1 });
+		synchronizer = new Synchronizer(domain, outputIndex, pipeline);
+
+		int classes = packages * CLASSES_PER_PACKAGE;
+		for (int i = 0; i < PATHS; i++) {
+			// 按步长分散到不同的包，避免总命中同一个目录
+			int n = (int) (((long) i * 7919) % classes);
+			String pkg = PACKAGE + "/p" + (n / CLASSES_PER_PACKAGE);
+			String cls = "Class" + (n % CLASSES_PER_PACKAGE);
+			String project = i % 10 == 0 ? "other" : PROJECT;
+			changedPaths[i] = "/" + project + "/trunk/src/" + pkg + "/" + cls + ".java";
+			fileNames[i] = cls + ".java";
+			contexts[i] = "/src/" + pkg;
+			dirs[i] = base + "/webapp/WEB-INF/classes/" + pkg;
+			outers[i] = cls;
+		}
+	}
+
+	/**
+	 * @discription: 生成工作区，每个包 100 个类，每 4 个类带两个内部类，共 150 个 class 文件。
+	 */
+	void createWorkspace() throws IOException {
+		byte[] content = new byte[FILE_SIZE];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		int created = 0;
+		for (int p = 0; p < packages; p++) {
+			File dir = new File(base + "/webapp/WEB-INF/classes/" + PACKAGE + "/p" + p);
+			if (!dir.mkdirs()) {
+				throw new IOException("cannot create " + dir);
+			}
+			for (int c = 0; c < CLASSES_PER_PACKAGE; c++) {
+				write(new File(dir, "Class" + c + ".class"), content);
+				created++;
+				if (c % INNER_CLASS_EVERY == 0) {
+					write(new File(dir, "Class" + c + "$1.class"), content);
+					write(new File(dir, "Class" + c + "$Inner.class"), content);
+					created += 2;
+				}
+			}
+		}
+		System.out.println("\t workspace : \t" + workspace + "\t" + created + " files");
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	void run(Bench bench, String filter) throws Exception {
+		Bench.header();
+		if (accept(filter, "FilePath.setFileName")) {
+			bench.run("FilePath.setFileName", new Bench.Operation() {
+				public Object run(int i) {
+					FilePath filePath = new FilePath();
+					filePath.setFileName(fileNames[i & (PATHS - 1)]);
+					return filePath;
+				}
+			});
+		}
+		if (accept(filter, "replaceSrcWebRoot")) {
+			bench.run("Synchronizer.replaceSrcWebRoot", new Bench.Operation() {
+				public Object run(int i) {
+					FilePath filePath = new FilePath();
+					filePath.setContext(contexts[i & (PATHS - 1)]);
+					synchronizer.replaceSrcWebRoot(filePath);
+					return filePath.getContext();
+				}
+			});
+		}
+		if (accept(filter, "isSameProject")) {
+			bench.run("Synchronizer.isSameProject", new Bench.Operation() {
+				public Object run(int i) {
+					return Boolean.valueOf(synchronizer.isSameProject(changedPaths[i & (PATHS - 1)]));
+				}
+			});
+		}
+		if (accept(filter, "getJavaRelativeFiles")) {
+			bench.run("Synchronizer.getJavaRelativeFiles", new Bench.Operation() {
+				public Object run(int i) {
+					FilePath filePath = new FilePath();
+					filePath.setBase(base);
+					filePath.setContext(dirs[i & (PATHS - 1)].substring(base.length()));
+					filePath.setName(outers[i & (PATHS - 1)]);
+					filePath.setExtension("class");
+					return synchronizer.getJavaRelativeFiles(filePath);
+				}
+			});
+		}
+		if (accept(filter, "findFile")) {
+			bench.run("FileCopy.findFile", new Bench.Operation() {
+				public Object run(int i) {
+					return FileCopy.findFile(dirs[i & (PATHS - 1)], outers[i & (PATHS - 1)] + "\\$.*\\.class");
+				}
+			});
+		}
+		if (accept(filter, "copy_")) {
+			final File target = new File(workspace, "copy");
+			if (!target.mkdirs()) {
+				throw new IOException("cannot create " + target);
+			}
+			bench.run("FileCopy.copy_", new Bench.Operation() {
+				public Object run(int i) {
+					int n = i & (PATHS - 1);
+					File source = new File(dirs[n], outers[n] + ".class");
+					// 目标按序号轮换，总是覆盖已有文件
+					return Boolean.valueOf(FileCopy.copy_(source, new File(target, (i & 255) + ".class")));
+				}
+			});
+		}
+	}
+
+	private static boolean accept(String filter, String name) {
+		return filter == null || name.indexOf(filter) >= 0;
+	}
+
+	void close() {
+		pipeline.shutdown();
+		delete(workspace);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (int i = 0; i < children.length; i++) {
+				delete(children[i]);
+			}
+		}
+		if (!file.delete()) {
+			System.err.println("\t cannot delete : \t" + file);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int files = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		String filter = args.length > 1 ? args[1] : null;
+		SyncBenchmark benchmark = new SyncBenchmark(files);
+		try {
+			benchmark.createWorkspace();
+			benchmark.run(new Bench(5, 10, 500), filter);
+		} finally {
+			benchmark.close();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.sdxz.svn;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @discription: 把打包文件直接写进压缩包，不再先写打包目录再手工压缩。
+ *               条目按名称排序后写入，压缩在多个线程上并行进行，写入顺序不变，相同的输入得到完全相同的压缩包。
+ */
+public abstract class ArchiveSink implements PackageSink {
+
+	/** 同时在压缩的条目数 = 线程数 × WINDOW_PER_THREAD，控制内存占用。 */
+	private static final int WINDOW_PER_THREAD = 4;
+
+	private final File archive;
+	private final int threads;
+	private final SortedMap tasks = new TreeMap();
+	private final CopyReport report = new CopyReport();
+	private boolean closed;
+
+	protected ArchiveSink(File archive, int threads) {
+		this.archive = archive;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * @discription: 按扩展名选择格式：.tar.gz/.tgz 写 tar.gz，其它（.zip/.jar/.war）写 zip。
+	 */
+	public static ArchiveSink create(File archive, int threads) {
+		String name = archive.getName().toLowerCase();
+		if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+			return new TarGzArchiveSink(archive, threads);
+		}
+		return new ZipArchiveSink(archive, threads);
+	}
+
+	public File getArchive() {
+		return archive;
+	}
+
+	public CopyReport getReport() {
+		return report;
+	}
+
+	/**
+	 * @discription: 只登记条目，真正的读取和压缩在 shutdown 时进行。同名条目保留源路径较小的一个，与提交顺序无关。
+	 */
+	public synchronized void submit(CopyTask task) {
+		if (closed) {
+			throw new IllegalStateException("archive already written: " + archive);
+		}
+		String name = getEntryName(task.getName());
+		CopyTask previous = (CopyTask) tasks.get(name);
+		if (previous == null || task.getSource().getPath().compareTo(previous.getSource().getPath()) < 0) {
+			tasks.put(name, task);
+			deleteTemporary(previous);
+		} else {
+			deleteTemporary(task);
+		}
+	}
+
+	public void shutdown() {
+		List entries;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			entries = new ArrayList(tasks.values());
+		}
+		if (!FileCopy.createPath(archive.getAbsoluteFile().getParent())) {
+			throw new RuntimeException("系统不能创建指定路径：" + archive);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		OutputStream out = null;
+		long start = System.nanoTime();
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(archive), 64 * 1024);
+			write(entries, out, executor, threads * WINDOW_PER_THREAD);
+			out.flush();
+		} catch (IOException e) {
+			// 写了一半的压缩包是坏的，不留下来
+			CopyEngine.close(out);
+			out = null;
+			archive.delete();
+			throw new RuntimeException("写入压缩包失败：" + archive, e);
+		} finally {
+			CopyEngine.close(out);
+			report.addTime(System.nanoTime() - start);
+			executor.shutdownNow();
+			for (Iterator iter = entries.iterator(); iter.hasNext();) {
+				deleteTemporary((CopyTask) iter.next());
+			}
+		}
+	}
+
+	private static void deleteTemporary(CopyTask task) {
+		if (task != null && task.isTemporary()) {
+			task.getSource().delete();
+		}
+	}
+
+	/**
+	 * @discription: 把排好序的条目写入 out。压缩任务提交到 executor，最多 window 个任务同时进行，结果按提交顺序写出。
+	 */
+	protected abstract void write(List entries, OutputStream out, ExecutorService executor, int window)
+			throws IOException;
+
+	static String getEntryName(String name) {
+		String entryName = name.replace('\\', '/');
+		while (entryName.startsWith(FilePath.separator)) {
+			entryName = entryName.substring(1);
+		}
+		return entryName;
+	}
+
+	/**
+	 * @discription: 取出最早提交的压缩结果，失败的条目记入报告并返回 null。
+	 */
+	protected Object take(LinkedList futures) throws IOException {
+		Future future = (Future) futures.removeFirst();
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			report.addFailed();
+			RunLog.get().error("archive-entry-failed", "archive", archive, "error", e.getCause());
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while writing " + archive);
+		}
+	}
+
+	protected static void cancel(LinkedList futures) {
+		for (Iterator iter = futures.iterator(); iter.hasNext();) {
+			((Future) iter.next()).cancel(true);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.sdxz.svn;
+
+import java.util.Date;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+
+/**
+ * @discription: 从本地日志库 {@link LogStore} 读出的日志。
+ */
+class CachedLogMessage implements ISVNLogMessage {
+
+	private final SVNRevision.Number revision;
+	private final String author;
+	private final Date date;
+	private final String message;
+	private final ISVNLogMessageChangePath[] changedPaths;
+
+	public CachedLogMessage(long revision, String author, Date date, String message,
+			ISVNLogMessageChangePath[] changedPaths) {
+		this.revision = new SVNRevision.Number(revision);
+		this.author = author;
+		this.date = date;
+		this.message = message;
+		this.changedPaths = changedPaths;
+	}
+
+	public SVNRevision.Number getRevision() {
+		return revision;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public ISVNLogMessageChangePath[] getChangedPaths() {
+		return changedPaths;
+	}
+
+	public String toString() {
+		return revision + "\t" + author;
+	}
+}
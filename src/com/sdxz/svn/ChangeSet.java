@@ -0,0 +1,159 @@
+package com.sdxz.svn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+
+/**
+ * @discription: 把多个版本的变更路径合并成每个路径一条的净变更。按版本号从小到大合并：
+ *               A→M→M 合并为 A，A→D 直接去掉，M→D 为 D，D→A 为 R。
+ */
+class ChangeSet {
+
+	private final SortedMap changes = new TreeMap();
+
+	/**
+	 * @discription: 按版本号排序后依次合并，与日志返回的顺序无关。
+	 */
+	public void addAll(ISVNLogMessage[] logMessages) {
+		ISVNLogMessage[] sorted = logMessages.clone();
+		Arrays.sort(sorted, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				long r1 = ((ISVNLogMessage) o1).getRevision().getNumber();
+				long r2 = ((ISVNLogMessage) o2).getRevision().getNumber();
+				return r1 < r2 ? -1 : (r1 == r2 ? 0 : 1);
+			}
+		});
+		for (int i = 0; i < sorted.length; i++) {
+			add(sorted[i]);
+		}
+	}
+
+	public void add(ISVNLogMessage logMessage) {
+		ISVNLogMessageChangePath[] changedPaths = logMessage.getChangedPaths();
+		if (changedPaths == null) {
+			return;
+		}
+		long revision = logMessage.getRevision().getNumber();
+		for (int i = 0; i < changedPaths.length; i++) {
+			add(changedPaths[i], revision);
+		}
+	}
+
+	public void add(ISVNLogMessageChangePath changedPath, long revision) {
+		String path = changedPath.getPath();
+		char action = changedPath.getAction();
+		if (action == 'D') {
+			deleteChildren(path, revision);
+		}
+		Change previous = (Change) changes.get(path);
+		char merged = previous == null ? action : merge(previous.getAction(), action);
+		if (merged == 0) {
+			changes.remove(path);
+		} else {
+			changes.put(path, new Change(path, merged, revision, changedPath));
+		}
+	}
+
+	/**
+	 * @discription: 返回 0 表示该路径在这些版本里先增后删，没有净变更。
+	 */
+	static char merge(char previous, char action) {
+		switch (action) {
+		case 'D':
+			return previous == 'A' ? 0 : 'D';
+		case 'A':
+		case 'R':
+			return previous == 'D' || previous == 'R' ? 'R' : (previous == 'A' ? 'A' : action);
+		default:
+			return previous == 'D' ? action : previous;
+		}
+	}
+
+	/**
+	 * @discription: 删除目录时，目录下之前的变更也一起作废。
+	 */
+	private void deleteChildren(String path, long revision) {
+		String prefix = path + FilePath.separator;
+		SortedMap children = changes.subMap(prefix, prefix + Character.MAX_VALUE);
+		for (Iterator iter = new ArrayList(children.values()).iterator(); iter.hasNext();) {
+			Change child = (Change) iter.next();
+			if (child.getAction() == 'A') {
+				changes.remove(child.getPath());
+			} else if (child.getAction() != 'D') {
+				changes.put(child.getPath(), new Change(child.getPath(), 'D', revision, null));
+			}
+		}
+	}
+
+	/**
+	 * @discription: 按路径排序的净变更。
+	 */
+	public Collection getChanges() {
+		return changes.values();
+	}
+
+	public int size() {
+		return changes.size();
+	}
+
+	public Change get(String path) {
+		return (Change) changes.get(path);
+	}
+
+	public String toString() {
+		StringBuffer buf = new StringBuffer();
+		for (Iterator iter = changes.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			Change change = (Change) entry.getValue();
+			buf.append(change.getAction()).append(' ').append(entry.getKey()).append('@').append(change.getRevision()).append('\n');
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * @discription: 一个路径的净变更，revision 为最后一次修改该路径的版本号。
+	 */
+	static class Change implements ISVNLogMessageChangePath {
+		private final String path;
+		private final char action;
+		private final long revision;
+		private final ISVNLogMessageChangePath last;
+
+		Change(String path, char action, long revision, ISVNLogMessageChangePath last) {
+			this.path = path;
+			this.action = action;
+			this.revision = revision;
+			this.last = last;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public char getAction() {
+			return action;
+		}
+
+		public long getRevision() {
+			return revision;
+		}
+
+		public SVNRevision.Number getCopySrcRevision() {
+			return last == null ? null : last.getCopySrcRevision();
+		}
+
+		public String getCopySrcPath() {
+			return last == null ? null : last.getCopySrcPath();
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package com.sdxz.svn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.SVNClientAdapterFactory;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+/**
+ * @discription: 可重复使用的 svn 客户端池，按客户端类型、版本库根地址和用户名分组。
+ *               JavaHL/SVNKit 客户端创建和认证都比较慢，用完归还后同一版本库的下一次请求直接复用。
+ *               池中的客户端（借出的和空闲的）总数不超过 maxTotal，空闲超过 idleMillis 的客户端被丢弃。
+ *               丢弃的客户端调用 dispose 释放 JavaHL 的本地资源，dispose 在锁外执行。
+ */
+public class ClientPool {
+
+	public static final int DEFAULT_MAX_TOTAL = 16;
+	public static final long DEFAULT_IDLE_MILLIS = 5 * 60 * 1000L;
+	public static final long DEFAULT_WAIT_MILLIS = 60 * 1000L;
+
+	private static ClientPool defaultPool;
+
+	private final int maxTotal;
+	private final long idleMillis;
+	private final long waitMillis;
+	/** 分组 → 空闲客户端，最近归还的在最后 */
+	private final Map idle = new HashMap();
+	/** 借出的客户端 → 借用信息 */
+	private final Map borrowed = new IdentityHashMap();
+	/** 已知的版本库根地址 */
+	private final List roots = new ArrayList();
+	private final Timer evictor;
+	private int total;
+	private long created;
+	private long reused;
+
+	public ClientPool() {
+		this(DEFAULT_MAX_TOTAL, DEFAULT_IDLE_MILLIS, DEFAULT_WAIT_MILLIS);
+	}
+
+	/**
+	 * @param waitMillis 池满时借用等待的最长时间，超时抛出 SVNClientException
+	 */
+	public ClientPool(int maxTotal, long idleMillis, long waitMillis) {
+		if (maxTotal < 1) {
+			throw new IllegalArgumentException("maxTotal must be positive: " + maxTotal);
+		}
+		this.maxTotal = maxTotal;
+		this.idleMillis = idleMillis;
+		this.waitMillis = waitMillis;
+		this.evictor = new Timer("svn-client-evictor", true);
+		long period = Math.max(1000L, idleMillis / 2);
+		evictor.schedule(new TimerTask() {
+			public void run() {
+				evictIdle();
+			}
+		}, period, period);
+	}
+
+	public static synchronized ClientPool getDefault() {
+		if (defaultPool == null) {
+			defaultPool = new ClientPool();
+		}
+		return defaultPool;
+	}
+
+	public static synchronized void setDefault(ClientPool pool) {
+		defaultPool = pool;
+	}
+
+	public ISVNClientAdapter borrow(SVNUrl url, String username, String password) throws SVNClientException {
+		return borrow(SVNClientAdapterFactory.getPreferredSVNClientType(), url, username, password);
+	}
+
+	/**
+	 * @discription: 借一个客户端，用完必须调用 {@link #release} 归还，出错不能再用的调用 {@link #invalidate}。
+	 */
+	public ISVNClientAdapter borrow(String clientType, SVNUrl url, String username, String password)
+			throws SVNClientException {
+		Lease lease = new Lease(clientType, url.toString(), username);
+		ISVNClientAdapter client = null;
+		List evicted = new ArrayList(1);
+		synchronized (this) {
+			long deadline = System.currentTimeMillis() + waitMillis;
+			while (true) {
+				LinkedList clients = (LinkedList) idle.get(key(lease));
+				if (clients != null && !clients.isEmpty()) {
+					client = ((Idle) clients.removeLast()).client;
+					if (clients.isEmpty()) {
+						idle.remove(key(lease));
+					}
+					borrowed.put(client, lease);
+					reused++;
+					break;
+				}
+				if (total < maxTotal || evictOldest(evicted)) {
+					total++;
+					break;
+				}
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					throw new SVNClientException("svn client pool exhausted: " + maxTotal + " clients in use");
+				}
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SVNClientException("interrupted while waiting for svn client");
+				}
+			}
+		}
+		// 腾位置丢弃的客户端
+		dispose(evicted);
+
+		if (client == null) {
+			try {
+				client = SVNClientAdapterFactory.createSVNClient(clientType);
+			} catch (RuntimeException e) {
+				discard();
+				throw e;
+			}
+			if (client == null) {
+				discard();
+				throw new SVNClientException("svn client not available: " + clientType);
+			}
+			synchronized (this) {
+				borrowed.put(client, lease);
+				created++;
+			}
+		}
+		// 同一用户的密码可能已经修改，每次借出都重新设置
+		client.setUsername(username);
+		client.setPassword(password);
+		return client;
+	}
+
+	/**
+	 * @discription: 归还客户端。按归还时已知的版本库根分组，所以借出后才知道根地址的客户端也能被同一版本库的其它工程复用。
+	 */
+	public synchronized void release(ISVNClientAdapter client) {
+		Lease lease = (Lease) borrowed.remove(client);
+		if (lease == null) {
+			return;
+		}
+		String key = key(lease);
+		LinkedList clients = (LinkedList) idle.get(key);
+		if (clients == null) {
+			clients = new LinkedList();
+			idle.put(key, clients);
+		}
+		clients.addLast(new Idle(client, System.currentTimeMillis()));
+		notifyAll();
+	}
+
+	/**
+	 * @discription: 丢弃借出的客户端，不再放回池中。
+	 */
+	public void invalidate(ISVNClientAdapter client) {
+		synchronized (this) {
+			if (borrowed.remove(client) == null) {
+				return;
+			}
+			total--;
+			notifyAll();
+		}
+		dispose(Collections.singletonList(client));
+	}
+
+	private synchronized void discard() {
+		total--;
+		notifyAll();
+	}
+
+	/**
+	 * @discription: 记录版本库根地址，之后根下的所有地址都归到同一组。
+	 */
+	public synchronized void addRoot(String root) {
+		if (root != null && !roots.contains(root)) {
+			roots.add(root);
+		}
+	}
+
+	/**
+	 * @return 丢弃的空闲客户端数
+	 */
+	public int evictIdle() {
+		List evicted = new ArrayList();
+		synchronized (this) {
+			long expired = System.currentTimeMillis() - idleMillis;
+			for (Iterator iter = idle.values().iterator(); iter.hasNext();) {
+				LinkedList clients = (LinkedList) iter.next();
+				// 最久没用的在前面
+				while (!clients.isEmpty() && ((Idle) clients.getFirst()).since <= expired) {
+					evicted.add(((Idle) clients.removeFirst()).client);
+				}
+				if (clients.isEmpty()) {
+					iter.remove();
+				}
+			}
+			total -= evicted.size();
+			if (!evicted.isEmpty()) {
+				notifyAll();
+			}
+		}
+		dispose(evicted);
+		return evicted.size();
+	}
+
+	/**
+	 * @discription: 池满时丢弃其它分组中最久没用的空闲客户端，给新的分组腾出位置。
+	 */
+	private boolean evictOldest(List evicted) {
+		LinkedList oldest = null;
+		for (Iterator iter = idle.values().iterator(); iter.hasNext();) {
+			LinkedList clients = (LinkedList) iter.next();
+			if (oldest == null || ((Idle) clients.getFirst()).since < ((Idle) oldest.getFirst()).since) {
+				oldest = clients;
+			}
+		}
+		if (oldest == null) {
+			return false;
+		}
+		evicted.add(((Idle) oldest.removeFirst()).client);
+		if (oldest.isEmpty()) {
+			idle.values().remove(oldest);
+		}
+		total--;
+		return true;
+	}
+
+	/**
+	 * @discription: 丢弃所有空闲客户端并停止回收线程，借出的客户端归还后仍然进入空闲列表。
+	 */
+	public void close() {
+		List evicted = new ArrayList();
+		synchronized (this) {
+			evictor.cancel();
+			for (Iterator iter = idle.values().iterator(); iter.hasNext();) {
+				LinkedList clients = (LinkedList) iter.next();
+				for (Iterator idles = clients.iterator(); idles.hasNext();) {
+					evicted.add(((Idle) idles.next()).client);
+				}
+				total -= clients.size();
+			}
+			idle.clear();
+		}
+		dispose(evicted);
+	}
+
+	private static void dispose(List clients) {
+		for (Iterator iter = clients.iterator(); iter.hasNext();) {
+			try {
+				((ISVNClientAdapter) iter.next()).dispose();
+			} catch (RuntimeException e) {
+				RunLog.get().warn("client-dispose-failed", "error", e);
+			}
+		}
+	}
+
+	private String key(Lease lease) {
+		return lease.clientType + "|" + getRoot(lease.url) + "|" + lease.username;
+	}
+
+	private String getRoot(String url) {
+		String best = url;
+		int length = -1;
+		for (int i = 0; i < roots.size(); i++) {
+			String root = (String) roots.get(i);
+			if (root.length() > length && url.startsWith(root)
+					&& (url.length() == root.length() || url.charAt(root.length()) == '/')) {
+				best = root;
+				length = root.length();
+			}
+		}
+		return best;
+	}
+
+	public synchronized String toString() {
+		int idleCount = total - borrowed.size();
+		return "\t svn clients : \t" + total + " (" + borrowed.size() + " borrowed, " + idleCount + " idle), "
+				+ created + " created, " + reused + " reused";
+	}
+
+	private static class Lease {
+		final String clientType;
+		final String url;
+		final String username;
+
+		Lease(String clientType, String url, String username) {
+			this.clientType = clientType;
+			this.url = url;
+			this.username = username;
+		}
+	}
+
+	private static class Idle {
+		final ISVNClientAdapter client;
+		final long since;
+
+		Idle(ISVNClientAdapter client, long since) {
+			this.client = client;
+			this.since = since;
+		}
+	}
+}
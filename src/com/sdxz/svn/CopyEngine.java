@@ -0,0 +1,144 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * @discription: 基于 FileChannel.transferTo 的文件复制，Linux 下由内核完成复制，不经过 Java 堆。
+ *               可选保留最后修改时间、复制完成后 fsync、目标文件内容相同时跳过（增量模式）。
+ */
+public class CopyEngine {
+
+	/** 单次 transferTo 的最大字节数，Windows 下一次传输过大会失败。 */
+	private static final long MAX_TRANSFER = 8L * 1024 * 1024;
+
+	private static final int HASH_BUFFER = 64 * 1024;
+
+	public static final CopyEngine DEFAULT = new CopyEngine(true, false);
+
+	/** 增量模式，重复打包到同一个目录时只写入变化的文件。 */
+	public static final CopyEngine INCREMENTAL = new CopyEngine(true, false, true);
+
+	private final boolean preserveLastModified;
+	private final boolean fsync;
+	private final boolean skipUnchanged;
+
+	public CopyEngine(boolean preserveLastModified, boolean fsync) {
+		this(preserveLastModified, fsync, false);
+	}
+
+	public CopyEngine(boolean preserveLastModified, boolean fsync, boolean skipUnchanged) {
+		this.preserveLastModified = preserveLastModified;
+		this.fsync = fsync;
+		this.skipUnchanged = skipUnchanged;
+	}
+
+	public boolean isPreserveLastModified() {
+		return preserveLastModified;
+	}
+
+	public boolean isFsync() {
+		return fsync;
+	}
+
+	public boolean isSkipUnchanged() {
+		return skipUnchanged;
+	}
+
+	/**
+	 * @discription: 目标文件与源文件相同时返回 true。先比较大小和最后修改时间，
+	 *               修改时间不同再比较两边内容的摘要；内容相同时顺便把目标的修改时间改成源文件的，下次直接命中。
+	 */
+	public boolean isUnchanged(File fileIn, File fileOut) throws IOException {
+		long length = fileOut.length();
+		if (length == 0L && !fileOut.isFile()) {
+			return false;
+		}
+		if (length != fileIn.length()) {
+			return false;
+		}
+		long lastModified = fileIn.lastModified();
+		if (lastModified == fileOut.lastModified()) {
+			return true;
+		}
+		if (!Arrays.equals(digest(fileIn), digest(fileOut))) {
+			return false;
+		}
+		if (preserveLastModified) {
+			fileOut.setLastModified(lastModified);
+		}
+		return true;
+	}
+
+	static byte[] digest(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e.toString());
+		}
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			byte[] buffer = new byte[HASH_BUFFER];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, n);
+			}
+		} finally {
+			close(in);
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * @discription: 复制单个文件，目标目录必须已经存在。
+	 * @return 复制的字节数
+	 */
+	public long copy(File fileIn, File fileOut) throws IOException {
+		FileInputStream in = null;
+		FileOutputStream out = null;
+		long position = 0;
+		try {
+			in = new FileInputStream(fileIn);
+			out = new FileOutputStream(fileOut);
+			FileChannel source = in.getChannel();
+			FileChannel target = out.getChannel();
+			long size = source.size();
+			while (position < size) {
+				long n = source.transferTo(position, Math.min(size - position, MAX_TRANSFER), target);
+				if (n <= 0) {
+					// 复制过程中源文件被截短
+					break;
+				}
+				position += n;
+			}
+			if (fsync) {
+				target.force(true);
+			}
+		} finally {
+			close(in);
+			close(out);
+		}
+		if (preserveLastModified) {
+			fileOut.setLastModified(fileIn.lastModified());
+		}
+		return position;
+	}
+
+	static void close(java.io.Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @discription: 复制阶段。复制任务交给固定数量的 I/O 线程执行，队列满时由提交任务的线程自己复制，
+ *               已经建好的目录记录下来，同一次打包中每个目标目录只创建一次。
+ */
+public class CopyPipeline implements PackageSink {
+
+	public static final int DEFAULT_WORKERS = 4;
+	private static final int QUEUE_PER_WORKER = 64;
+
+	private final ThreadPoolExecutor executor;
+	private final CopyEngine engine;
+	private final CopyReport report = new CopyReport();
+	private final Set createdDirs = Collections.newSetFromMap(new ConcurrentHashMap());
+	private volatile ResumeJournal journal;
+	private int pending;
+	private boolean closed;
+
+	public CopyPipeline() {
+		this(DEFAULT_WORKERS, CopyEngine.DEFAULT);
+	}
+
+	public CopyPipeline(int workers, CopyEngine engine) {
+		this.engine = engine;
+		this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue(
+				workers * QUEUE_PER_WORKER), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	public CopyReport getReport() {
+		return report;
+	}
+
+	/**
+	 * @discription: 设置后跳过续传日志中已经复制的文件，每复制完一个文件记入日志。
+	 */
+	public void setJournal(ResumeJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * @throws IllegalStateException 已经 {@link #shutdown()} 之后再提交
+	 */
+	public void submit(final CopyTask task) {
+		synchronized (this) {
+			// 关闭后线程池会直接丢掉任务，计数永远不会减回去
+			if (closed) {
+				throw new IllegalStateException("copy pipeline is shut down");
+			}
+			pending++;
+		}
+		executor.execute(new Runnable() {
+			public void run() {
+				long start = System.nanoTime();
+				try {
+					execute(task);
+				} finally {
+					report.addTime(System.nanoTime() - start);
+					done();
+				}
+			}
+		});
+	}
+
+	private void execute(CopyTask task) {
+		ResumeJournal journal = this.journal;
+		try {
+			File target = task.getTarget();
+			if (journal != null && journal.isCopied(task)) {
+				report.addResumed();
+				return;
+			}
+			long size = task.getSource().length();
+			long lastModified = task.getSource().lastModified();
+			if (engine.isSkipUnchanged() && engine.isUnchanged(task.getSource(), target)) {
+				report.addSkipped();
+			} else {
+				if (!ensureDirectory(target.getParentFile())) {
+					throw new RuntimeException("系统不能创建指定路径：" + target);
+				}
+				report.addCopied(engine.copy(task.getSource(), target));
+			}
+			if (journal != null) {
+				journal.copied(task, size, lastModified);
+			}
+		} catch (Exception e) {
+			if (task.getSource().isDirectory()) {
+				// 变更的是目录，目录下的文件有各自的变更记录
+				return;
+			}
+			report.addFailed();
+			RunLog.get().error("copy-failed", "source", task.getSource(), "target", task.getTarget(), "error", e);
+		}
+	}
+
+	/**
+	 * @discription: 目录只在第一次用到时创建，之后直接命中缓存，不再逐级检查父目录。
+	 */
+	boolean ensureDirectory(File dir) {
+		if (dir == null || createdDirs.contains(dir)) {
+			return true;
+		}
+		if (!dir.mkdirs() && !dir.isDirectory()) {
+			return false;
+		}
+		for (File parent = dir; parent != null && createdDirs.add(parent);) {
+			parent = parent.getParentFile();
+		}
+		return true;
+	}
+
+	private synchronized void done() {
+		pending--;
+		if (pending == 0) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * @discription: 等待已经提交的复制全部完成，之后还可以继续提交。
+	 */
+	public synchronized void await() throws InterruptedException {
+		while (pending > 0) {
+			wait();
+		}
+	}
+
+	public void shutdown() {
+		synchronized (this) {
+			closed = true;
+		}
+		try {
+			await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,84 @@
+package com.sdxz.svn;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @discription: 一次打包的复制统计，多个复制线程同时累加。
+ */
+public class CopyReport {
+
+	private final AtomicLong copied = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong missing = new AtomicLong();
+	private final AtomicLong resumed = new AtomicLong();
+	private final AtomicLong nanos = new AtomicLong();
+
+	void addCopied(long size) {
+		copied.incrementAndGet();
+		bytes.addAndGet(size);
+	}
+
+	void addSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	void addFailed() {
+		failed.incrementAndGet();
+	}
+
+	void addMissing() {
+		missing.incrementAndGet();
+	}
+
+	void addResumed() {
+		resumed.incrementAndGet();
+	}
+
+	void addTime(long time) {
+		nanos.addAndGet(time);
+	}
+
+	public long getCopied() {
+		return copied.get();
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * @discription: 增量模式下目标文件内容相同而没有写入的文件数。
+	 */
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getMissing() {
+		return missing.get();
+	}
+
+	/**
+	 * @discription: 上次中断前已经复制、这次按续传日志跳过的文件数。
+	 */
+	public long getResumed() {
+		return resumed.get();
+	}
+
+	/**
+	 * @discription: 复制用去的时间（纳秒），多个复制线程的时间相加。
+	 */
+	public long getNanos() {
+		return nanos.get();
+	}
+
+	public String toString() {
+		return "copied: " + getCopied() + "\t bytes: " + getBytes() + "\t unchanged: " + getSkipped() + "\t failed: "
+				+ getFailed() + "\t not found: " + getMissing() + "\t resumed: " + getResumed();
+	}
+}
@@ -0,0 +1,52 @@
+package com.sdxz.svn;
+
+import java.io.File;
+
+/**
+ * @discription: 映射阶段产生的一次复制：从工作区的 source 复制到打包目录的 target。
+ *               name 是相对打包根目录的路径，写压缩包时作为条目名。
+ */
+public class CopyTask {
+
+	private final File source;
+	private final File target;
+	private final String name;
+	private boolean temporary;
+
+	public CopyTask(File source, File target, String name) {
+		this.source = source;
+		this.target = target;
+		this.name = name;
+	}
+
+	public CopyTask(String source, String target, String name) {
+		this(new File(source), new File(target), name);
+	}
+
+	public File getSource() {
+		return source;
+	}
+
+	public File getTarget() {
+		return target;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @discription: source 是临时文件（如从版本库导出的资源文件），写入压缩包或被同名条目替换后删除。
+	 */
+	public boolean isTemporary() {
+		return temporary;
+	}
+
+	public void setTemporary(boolean temporary) {
+		this.temporary = temporary;
+	}
+
+	public String toString() {
+		return source + " -> " + target;
+	}
+}
@@ -0,0 +1,244 @@
+package com.sdxz.svn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+
+/**
+ * @discription: 同一个版本库下的多个工程只在版本库根上取一次日志，再把每个变更路径分给它所属的工程。
+ *               工程地址按路径的每一级建成前缀树，变更路径取最长匹配的工程；地址相同的几个工程都得到该路径。
+ */
+class DomainRouter {
+
+	private final String root;
+	private final Node trie = new Node();
+	private final Map revisions = new HashMap();
+
+	DomainRouter(String root) {
+		this.root = root;
+	}
+
+	public String getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return 工程地址不在该版本库下时返回 false
+	 */
+	public boolean add(SvnDomain domain) {
+		String url = domain.getSvnUrl();
+		if (url == null || !url.startsWith(root)) {
+			return false;
+		}
+		Node node = trie;
+		String[] segments = url.substring(root.length()).split(FilePath.separator);
+		for (int i = 0; i < segments.length; i++) {
+			if (segments[i].length() > 0) {
+				node = node.child(segments[i]);
+			}
+		}
+		if (node.domains == null) {
+			node.domains = new ArrayList(1);
+		}
+		node.domains.add(domain);
+		int[] versions = domain.getSvnVersions() == null ? new int[0] : domain.getSvnVersions().clone();
+		Arrays.sort(versions);
+		revisions.put(domain, versions);
+		return true;
+	}
+
+	public int size() {
+		return revisions.size();
+	}
+
+	/**
+	 * @discription: 变更路径（相对版本库根）所属的工程，不属于任何工程时返回 null。
+	 */
+	public List route(String path) {
+		Node node = trie;
+		List owners = node.domains;
+		int start = 0;
+		int length = path.length();
+		while (start < length) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				end = length;
+			}
+			if (end > start) {
+				node = node.children == null ? null : (Node) node.children.get(path.substring(start, end));
+				if (node == null) {
+					break;
+				}
+				if (node.domains != null) {
+					owners = node.domains;
+				}
+			}
+			start = end + 1;
+		}
+		return owners;
+	}
+
+	/**
+	 * @discription: 所有工程版本号的并集。
+	 */
+	public int[] getRevisions() {
+		int count = 0;
+		for (Iterator iter = revisions.values().iterator(); iter.hasNext();) {
+			count += ((int[]) iter.next()).length;
+		}
+		int[] all = new int[count];
+		int n = 0;
+		for (Iterator iter = revisions.values().iterator(); iter.hasNext();) {
+			int[] versions = (int[]) iter.next();
+			System.arraycopy(versions, 0, all, n, versions.length);
+			n += versions.length;
+		}
+		Arrays.sort(all);
+		int distinct = 0;
+		for (int i = 0; i < all.length; i++) {
+			if (distinct == 0 || all[i] != all[distinct - 1]) {
+				all[distinct++] = all[i];
+			}
+		}
+		int[] union = new int[distinct];
+		System.arraycopy(all, 0, union, 0, distinct);
+		return union;
+	}
+
+	/**
+	 * @discription: 把根上取回的日志按工程拆开，每个工程只得到自己请求的版本和属于自己的变更路径。
+	 */
+	public Map dispatch(ISVNLogMessage[] logMessages) {
+		Map routed = new LinkedHashMap();
+		for (Iterator iter = revisions.keySet().iterator(); iter.hasNext();) {
+			routed.put(iter.next(), new ArrayList());
+		}
+		Map paths = new HashMap();
+		for (int i = 0; i < logMessages.length; i++) {
+			ISVNLogMessage logMessage = logMessages[i];
+			ISVNLogMessageChangePath[] changedPaths = logMessage.getChangedPaths();
+			if (changedPaths == null) {
+				continue;
+			}
+			paths.clear();
+			for (int j = 0; j < changedPaths.length; j++) {
+				List owners = route(changedPaths[j].getPath());
+				if (owners == null) {
+					continue;
+				}
+				for (int k = 0; k < owners.size(); k++) {
+					SvnDomain owner = (SvnDomain) owners.get(k);
+					if (!requested(owner, logMessage.getRevision().getNumber())) {
+						continue;
+					}
+					List owned = (List) paths.get(owner);
+					if (owned == null) {
+						owned = new ArrayList();
+						paths.put(owner, owned);
+					}
+					owned.add(changedPaths[j]);
+				}
+			}
+			for (Iterator iter = paths.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				List owned = (List) entry.getValue();
+				((List) routed.get(entry.getKey())).add(new CachedLogMessage(logMessage.getRevision().getNumber(),
+						logMessage.getAuthor(), logMessage.getDate(), logMessage.getMessage(),
+						(ISVNLogMessageChangePath[]) owned.toArray(new ISVNLogMessageChangePath[owned.size()])));
+			}
+		}
+		for (Iterator iter = routed.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			List list = (List) entry.getValue();
+			entry.setValue(list.toArray(new ISVNLogMessage[list.size()]));
+		}
+		return routed;
+	}
+
+	private boolean requested(SvnDomain domain, long revision) {
+		return revision <= Integer.MAX_VALUE && Arrays.binarySearch((int[]) revisions.get(domain), (int) revision) >= 0;
+	}
+
+	/**
+	 * @discription: 按版本库根和账号给工程分组，同一版本库下同一账号有两个以上工程时在根上用该账号取一次日志再分发；
+	 *               账号不同的工程不共用日志，权限不同时不会拿到别的账号才能看到的日志。
+	 *               返回工程到日志的对应；没有包含在结果里的工程（单独一个工程、取根失败）由各自的 Synchronizer 自己取日志。
+	 */
+	public static Map route(SvnDomain[] domains, LogCache logCache, SyncMetrics metrics) {
+		Map routers = new LinkedHashMap();
+		Map credentials = new HashMap();
+		for (int i = 0; i < domains.length; i++) {
+			if (domains[i].isRangeMode()) {
+				// 区间打包不取日志
+				continue;
+			}
+			SVN svn = new SVN(domains[i]);
+			svn.setLogCache(logCache);
+			svn.setMetrics(metrics);
+			String root = svn.getRepositoryRoot();
+			svn.close();
+			if (root == null) {
+				continue;
+			}
+			String key = root + "\n" + domains[i].getUsername() + "\n" + domains[i].getPassword();
+			DomainRouter router = (DomainRouter) routers.get(key);
+			if (router == null) {
+				router = new DomainRouter(root);
+				routers.put(key, router);
+				credentials.put(router, domains[i]);
+			}
+			router.add(domains[i]);
+		}
+
+		Map routed = new HashMap();
+		for (Iterator iter = routers.values().iterator(); iter.hasNext();) {
+			DomainRouter router = (DomainRouter) iter.next();
+			if (router.size() < 2) {
+				continue;
+			}
+			SvnDomain first = (SvnDomain) credentials.get(router);
+			SVN rootSvn = new SVN(router.getRoot(), first.getUsername(), first.getPassword());
+			rootSvn.setLogCache(logCache);
+			rootSvn.setMetrics(metrics);
+			long begin = System.nanoTime();
+			try {
+				ISVNLogMessage[] logMessages = rootSvn.fetchLogMessages(router.getRevisions());
+				metrics.add(SyncMetrics.LOG, System.nanoTime() - begin, logMessages.length);
+				RunLog.get().info("shared-log", "root", router.getRoot(), "revisions", logMessages.length, "projects",
+						router.size());
+				routed.putAll(router.dispatch(logMessages));
+			} catch (SVNClientException e) {
+				RunLog.get().error("shared-log-failed", "root", router.getRoot(), "error", e);
+			} finally {
+				rootSvn.close();
+			}
+		}
+		return routed;
+	}
+
+	private static class Node {
+		Map children;
+		/** 地址正好是该节点的工程，多个工程可以配置同一个地址 */
+		List domains;
+
+		Node child(String name) {
+			if (children == null) {
+				children = new HashMap(4);
+			}
+			Node child = (Node) children.get(name);
+			if (child == null) {
+				child = new Node();
+				children.put(name, child);
+			}
+			return child;
+		}
+	}
+}
@@ -2,61 +2,41 @@ package com.sdxz.svn;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.util.regex.Pattern;
 
 public class FileCopy {
 
 	public static boolean copy(String file1, String file2) {
+		return copy(file1, file2, CopyEngine.DEFAULT) >= 0;
+	}
+
+	/**
+	 * @discription: 按指定的复制方式复制文件，返回复制的字节数，失败返回 -1。
+	 */
+	public static long copy(String file1, String file2, CopyEngine engine) {
 		try {
 			java.io.File file_in = new java.io.File(file1);
 			java.io.File file_out = new java.io.File(file2);
 
 			
 			if (file_in.isDirectory())
-				return false;
+				return -1;
 
 			if (!createPath(file_out.getParent()))
 				throw new RuntimeException("系统不能创建指定路径：" + file2);
 
-			if (copy_(file_in, file_out))
-				return true; // if success then return true
-			else
-				return false;
+			return engine.copy(file_in, file_out);
 		} catch (Exception e) {
-			e.printStackTrace();
-			return false; // if fail then return false
+			RunLog.get().error("copy-failed", "source", file1, "target", file2, "error", e);
+			return -1; // if fail then return -1
 		}
 	}
 
 	public static boolean copy_(java.io.File file_in, java.io.File file_out) {
-		FileInputStream in1 = null;
-		FileOutputStream out1 = null;
-
 		try {
-			in1 = new FileInputStream(file_in);
-			out1 = new FileOutputStream(file_out);
-
-			byte[] bytes = new byte[1024];
-			int c;
-			while ((c = in1.read(bytes)) != -1)
-				out1.write(bytes, 0, c);
+			CopyEngine.DEFAULT.copy(file_in, file_out);
 		} catch (Exception e) {
 			return false;
-		} finally {
-			if (in1 != null) {
-				try {
-					in1.close();
-				} catch (IOException e) {
-				}
-			}
-			if (out1 != null) {
-				try {
-					out1.close();
-				} catch (IOException e) {
-				}
-			}
 		}
 		return true;
 	}
@@ -71,7 +51,8 @@ public class FileCopy {
 		}
 
 		if (createPath(file.getParent())) {
-			if (!file.mkdir())
+			// 并行同步时其它线程可能已经建好了该目录
+			if (!file.mkdir() && !file.isDirectory())
 				return false;
 		} else
 			return false;
@@ -80,11 +61,12 @@ public class FileCopy {
 
 	public static File[] findFile(final String path, final String fileName) {
 		File dir = new File(path);
+		final Pattern pattern = Pattern.compile(fileName);
 		return dir.listFiles(new FileFilter() {
 
 			public boolean accept(File file) {
 				String name = file.getName();
-				if (name.matches(fileName))
+				if (pattern.matcher(name).matches())
 					return true;
 				else
 					return false;
@@ -5,10 +5,60 @@ public class InvokeInit {
 	static String PASSWORD = "password"; // svn密码
 	static String LOCALDESTLOCATION = "E:/Package/SVNTarget/sample"; // 本地打包后的路径。
 
+	static String STATEFILE = "E:/Package/SVNTarget/sample.state"; // 常驻模式下保存处理到的版本号
+
+	/**
+	 * @discription: 不带参数时按指定版本号打包一次；参数为 watch [间隔秒数] 时常驻，轮询新的提交并增量打包；
+	 *               参数为 range 起点 [终点版本号] 时按区间打包，起点为版本号，或替换工程地址末尾 trunk 的路径（如 tags/v1.0）。
+	 */
 	public static void main(String[] args) {
 
 		SVN.setup();
 		int[] svnVersions = new int[] { 219166 };
+		SvnDomain[] domains = createDomains(svnVersions);
+		if (args.length > 0 && args[0].equals("watch")) {
+			long interval = args.length > 1 ? Long.parseLong(args[1]) * 1000 : SyncDaemon.DEFAULT_INTERVAL_MILLIS;
+			final SyncDaemon daemon = new SyncDaemon(domains, new java.io.File(STATEFILE), interval);
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run() {
+					daemon.stop();
+				}
+			});
+			daemon.start();
+			return;
+		}
+		if (args.length > 1 && args[0].equals("range")) {
+			for (int i = 0; i < domains.length; i++) {
+				if (args[1].matches("\\d+")) {
+					domains[i].setBaseRevision(Long.parseLong(args[1]));
+				} else {
+					String svnUrl = domains[i].getSvnUrl();
+					int trunk = svnUrl.lastIndexOf("trunk");
+					if (trunk < 0) {
+						// 工程地址里没有 trunk，无法换成 args[1] 指定的路径
+						System.err.println("工程地址不含 trunk，range 起点只能用版本号：" + svnUrl);
+						printUsage();
+						return;
+					}
+					domains[i].setBaseUrl(svnUrl.substring(0, trunk) + args[1]);
+				}
+				if (args.length > 2) {
+					if (!args[2].matches("\\d+")) {
+						printUsage();
+						return;
+					}
+					domains[i].setTargetRevision(Long.parseLong(args[2]));
+				}
+			}
+		}
+		Synchronizer.syncFile(domains);
+	}
+
+	private static void printUsage() {
+		System.err.println("用法: InvokeInit [watch [间隔秒数] | range <起点版本号|替换 trunk 的路径> [终点版本号]]");
+	}
+
+	static SvnDomain[] createDomains(int[] svnVersions) {
 		SvnDomain domain1 = new SvnDomain();
 		domain1.setLocalRepository("E:/workspace/dtdCommon4Sd");
 		domain1.setSvnUrl("svn://10.110.1.24/svn/yaojian/G3/dtd/dtd_food/commonForSdFood/trunk");
@@ -25,7 +75,6 @@ public class InvokeInit {
 		domain2.setPassword(PASSWORD);
 		domain2.setLocalDestLocation(LOCALDESTLOCATION);
 
-		SvnDomain[] domains = new SvnDomain[] { domain1, domain2 };
-		Synchronizer.syncFile(domains);
+		return new SvnDomain[] { domain1, domain2 };
 	}
 }
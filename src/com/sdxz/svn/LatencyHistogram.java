@@ -0,0 +1,71 @@
+package com.sdxz.svn;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @discription: 耗时分布。按微秒数的二进制位数分桶（1us、2us、4us ... 约 2^40us），
+ *               记录时只做一次原子加，多个线程可以同时记录；百分位取所在桶的上界，误差在两倍以内。
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKETS = 42;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void record(long nanos, boolean success) {
+		long micros = Math.max(0, nanos / 1000);
+		int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		buckets.incrementAndGet(bucket);
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		if (!success) {
+			failed.incrementAndGet();
+		}
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * @param fraction 0 到 1 之间，如 0.99
+	 * @return 该百分位所在桶的上界（纳秒），没有记录时返回 0
+	 */
+	public long getPercentileNanos(double fraction) {
+		long total = count.get();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(total * fraction);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				// 第 i 个桶的微秒数小于 2^i
+				return Math.min(maxNanos.get(), (1L << i) * 1000);
+			}
+		}
+		return maxNanos.get();
+	}
+}
@@ -0,0 +1,124 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNInfo;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+/**
+ * @discription: 本地日志库的根目录，每个版本库一个 {@link LogStore} 子目录，同一版本库的工程共用一个 LogStore 实例。
+ *               工程地址到版本库根地址的对应关系也记在这里，打包已经取过的版本时完全不用访问服务器。
+ */
+public class LogCache {
+
+	private static final String ROOTS_FILE = "roots.properties";
+
+	private final File dir;
+	private final Properties roots = new Properties();
+	private final Map stores = new HashMap();
+
+	public LogCache() {
+		this(getDefaultDirectory());
+	}
+
+	public LogCache(File dir) {
+		this.dir = dir;
+		File rootsFile = new File(dir, ROOTS_FILE);
+		if (rootsFile.isFile()) {
+			InputStream in = null;
+			try {
+				in = new FileInputStream(rootsFile);
+				roots.load(in);
+			} catch (IOException e) {
+				RunLog.get().error("roots-load-failed", "file", rootsFile, "error", e);
+			} finally {
+				CopyEngine.close(in);
+			}
+		}
+	}
+
+	public static File getDefaultDirectory() {
+		return new File(System.getProperty("user.home"), ".svnpackage" + File.separator + "logcache");
+	}
+
+	/**
+	 * @discription: 工程地址所在版本库的根地址。取不到时退回到工程地址本身，日志就按工程地址缓存。
+	 */
+	public synchronized String getRepositoryRoot(SVNUrl url, ISVNClientAdapter client) {
+		String key = url.toString();
+		String root = roots.getProperty(key);
+		if (root != null) {
+			return root;
+		}
+		root = key;
+		try {
+			ISVNInfo info = client.getInfo(url);
+			if (info != null && info.getRepository() != null) {
+				root = info.getRepository().toString();
+			}
+		} catch (Exception e) {
+			RunLog.get().warn("repository-root-failed", "url", key, "error", e);
+		}
+		roots.setProperty(key, root);
+		saveRoots();
+		return root;
+	}
+
+	public synchronized LogStore getStore(String root) throws IOException {
+		LogStore store = (LogStore) stores.get(root);
+		if (store == null) {
+			store = new LogStore(new File(dir, digest(root)));
+			stores.put(root, store);
+		}
+		return store;
+	}
+
+	public synchronized void close() {
+		for (Iterator iter = stores.values().iterator(); iter.hasNext();) {
+			((LogStore) iter.next()).close();
+		}
+		stores.clear();
+	}
+
+	private void saveRoots() {
+		if (!FileCopy.createPath(dir.getAbsolutePath())) {
+			return;
+		}
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(new File(dir, ROOTS_FILE));
+			roots.store(out, "svn url -> repository root");
+		} catch (IOException e) {
+			RunLog.get().error("roots-save-failed", "dir", dir, "error", e);
+		} finally {
+			CopyEngine.close(out);
+		}
+	}
+
+	private static String digest(String root) {
+		try {
+			byte[] bytes = MessageDigest.getInstance("MD5").digest(root.getBytes("UTF-8"));
+			StringBuffer hex = new StringBuffer();
+			for (int i = 0; i < bytes.length; i++) {
+				hex.append(Integer.toHexString((bytes[i] & 0xFF) | 0x100).substring(1));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
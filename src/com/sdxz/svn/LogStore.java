@@ -0,0 +1,260 @@
+package com.sdxz.svn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Date;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.SVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+
+/**
+ * @discription: 一个版本库的本地日志库。已经提交的版本日志不会再变，取过一次就存下来。
+ *               log.dat 只追加写入，每条记录是一个版本的作者、时间、说明和变更路径；
+ *               log.idx 通过内存映射按版本号定位，第 n 个 long 是版本 n 的记录在 log.dat 中的位置加一，0 表示没有。
+ *               没有变更路径的记录表示该版本与这个库无关（取日志时服务器没有返回）。
+ *               写入的进程锁住 log.dat；锁已经被别的进程（比如 daemon）拿走时只读打开，put 抛出 IOException，调用方直接问服务器。
+ */
+public class LogStore {
+
+	private static final String DATA_FILE = "log.dat";
+	private static final String INDEX_FILE = "log.idx";
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+
+	private final File dir;
+	private final RandomAccessFile data;
+	private final RandomAccessFile index;
+	private final boolean readOnly;
+	private MappedByteBuffer indexBuffer;
+	private PathIndex pathIndex;
+	private long capacity;
+	private long dataLength;
+
+	LogStore(File dir) throws IOException {
+		this.dir = dir;
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("cannot create log store: " + dir);
+		}
+		RandomAccessFile file = new RandomAccessFile(new File(dir, DATA_FILE), "rw");
+		if (tryLock(file)) {
+			readOnly = false;
+			data = file;
+			index = new RandomAccessFile(new File(dir, INDEX_FILE), "rw");
+			dataLength = data.length();
+			mapIndex(Math.max(INITIAL_CAPACITY, index.length() / 8));
+			return;
+		}
+		CopyEngine.close(file);
+		File indexFile = new File(dir, INDEX_FILE);
+		if (!indexFile.isFile()) {
+			throw new IOException("log store is being created by another process: " + dir);
+		}
+		readOnly = true;
+		data = new RandomAccessFile(new File(dir, DATA_FILE), "r");
+		index = new RandomAccessFile(indexFile, "r");
+		// 另一个进程之后追加的记录超出这里的长度，当作库里没有
+		dataLength = data.length();
+		capacity = index.length() / 8;
+		indexBuffer = index.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, capacity * 8);
+	}
+
+	/**
+	 * @discription: 锁在关闭文件时释放。同一个进程里已经有别的 LogStore 打开了这个目录时也按拿不到锁处理。
+	 */
+	private static boolean tryLock(RandomAccessFile file) throws IOException {
+		try {
+			FileLock lock = file.getChannel().tryLock();
+			return lock != null;
+		} catch (OverlappingFileLockException e) {
+			return false;
+		}
+	}
+
+	public File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * @discription: 库里所有版本的路径索引，第一次调用时从库里建立，之后存入库的版本同时加入索引。
+	 */
+	public synchronized PathIndex getPathIndex() throws IOException {
+		if (pathIndex == null) {
+			PathIndex index = new PathIndex();
+			index.add(this, 0, capacity - 1);
+			pathIndex = index;
+		}
+		return pathIndex;
+	}
+
+	/**
+	 * @return 锁在别的进程手里，只能读不能写
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	private void mapIndex(long newCapacity) throws IOException {
+		capacity = newCapacity;
+		indexBuffer = index.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity * 8);
+	}
+
+	private long getOffset(long revision) {
+		if (revision < 0 || revision >= capacity) {
+			return -1;
+		}
+		long offset = indexBuffer.getLong((int) (revision * 8)) - 1;
+		// 记录没有完整写入时索引可能指向文件末尾之外
+		return offset < dataLength ? offset : -1;
+	}
+
+	public synchronized boolean contains(long revision) {
+		return getOffset(revision) >= 0;
+	}
+
+	/**
+	 * @return 库里没有该版本时返回 null；该版本与这个库无关时返回没有变更路径的日志。
+	 */
+	public synchronized ISVNLogMessage get(long revision) throws IOException {
+		long offset = getOffset(revision);
+		if (offset < 0) {
+			return null;
+		}
+		ByteBuffer length = ByteBuffer.allocate(4);
+		readFully(length, offset);
+		ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+		readFully(record, offset + 4);
+		return read(new DataInputStream(new ByteArrayInputStream(record.array())));
+	}
+
+	public synchronized void put(ISVNLogMessage logMessage) throws IOException {
+		if (readOnly) {
+			throw new IOException("log store is locked by another process: " + dir);
+		}
+		long revision = logMessage.getRevision().getNumber();
+		if (contains(revision)) {
+			return;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		write(out, logMessage);
+		out.flush();
+		byte[] record = bytes.toByteArray();
+		ByteBuffer.wrap(record).putInt(0, record.length - 4);
+		append(revision, record);
+		if (pathIndex != null) {
+			pathIndex.add(logMessage);
+		}
+	}
+
+	/**
+	 * @discription: 记录该版本与这个库无关，下次不用再问服务器。
+	 */
+	public void putEmpty(long revision) throws IOException {
+		put(new CachedLogMessage(revision, null, null, null, new ISVNLogMessageChangePath[0]));
+	}
+
+	private void append(long revision, byte[] record) throws IOException {
+		if (revision >= Integer.MAX_VALUE / 8) {
+			throw new IOException("revision out of range: " + revision);
+		}
+		long offset = dataLength;
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		FileChannel channel = data.getChannel();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, offset + buffer.position());
+		}
+		dataLength += record.length;
+		// 先写数据再写索引，中途退出最多丢掉一条记录
+		if (revision >= capacity) {
+			mapIndex(Math.max(revision + 1, capacity * 2));
+		}
+		indexBuffer.putLong((int) (revision * 8), offset + 1);
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		FileChannel channel = data.getChannel();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("log store truncated: " + dir);
+			}
+		}
+	}
+
+	public synchronized void close() {
+		try {
+			indexBuffer.force();
+		} catch (Exception e) {
+		}
+		CopyEngine.close(data);
+		CopyEngine.close(index);
+	}
+
+	private static void write(DataOutputStream out, ISVNLogMessage logMessage) throws IOException {
+		out.writeLong(logMessage.getRevision().getNumber());
+		writeString(out, logMessage.getAuthor());
+		Date date = logMessage.getDate();
+		out.writeLong(date == null ? Long.MIN_VALUE : date.getTime());
+		writeString(out, logMessage.getMessage());
+		ISVNLogMessageChangePath[] changedPaths = logMessage.getChangedPaths();
+		int count = changedPaths == null ? 0 : changedPaths.length;
+		out.writeInt(count);
+		for (int i = 0; i < count; i++) {
+			ISVNLogMessageChangePath changedPath = changedPaths[i];
+			out.writeChar(changedPath.getAction());
+			writeString(out, changedPath.getPath());
+			writeString(out, changedPath.getCopySrcPath());
+			SVNRevision.Number copySrcRevision = changedPath.getCopySrcRevision();
+			out.writeLong(copySrcRevision == null ? -1 : copySrcRevision.getNumber());
+		}
+	}
+
+	private static ISVNLogMessage read(DataInputStream in) throws IOException {
+		long revision = in.readLong();
+		String author = readString(in);
+		long time = in.readLong();
+		String message = readString(in);
+		ISVNLogMessageChangePath[] changedPaths = new ISVNLogMessageChangePath[in.readInt()];
+		for (int i = 0; i < changedPaths.length; i++) {
+			char action = in.readChar();
+			String path = readString(in);
+			String copySrcPath = readString(in);
+			long copySrcRevision = in.readLong();
+			changedPaths[i] = new SVNLogMessageChangePath(path, copySrcRevision < 0 ? null
+					: new SVNRevision.Number(copySrcRevision), copySrcPath, action);
+		}
+		return new CachedLogMessage(revision, author, time == Long.MIN_VALUE ? null : new Date(time), message,
+				changedPaths);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+}
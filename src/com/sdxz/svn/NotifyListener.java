@@ -16,27 +16,27 @@ public class NotifyListener implements ISVNNotifyListener {
 	}
 
 	public void logMessage(String message) {
-		System.out.println(message);
+		RunLog.get().info("svn", "message", message);
 	}
 
 	public void logCommandLine(String message) {
 		// the command line used
-		System.out.println(message);
+		RunLog.get().debug("svn-command", "command", message);
 	}
 
 	public void logError(String message) {
 		// when an error occurs
-		System.out.println("error :" + message);
+		RunLog.get().error("svn-error", "message", message);
 	}
 
 	public void logRevision(long revision, String path) {
 		// when command completes against revision
-		System.out.println("revision :" + revision);
+		RunLog.get().info("svn-revision", "revision", revision, "path", path);
 	}
 
 	public void logCompleted(String message) {
 		// when command completed
-		System.out.println(message);
+		RunLog.get().info("svn-completed", "message", message);
 	}
 
 	public void onNotify(File path, SVNNodeKind nodeKind) {
@@ -47,6 +47,6 @@ public class NotifyListener implements ISVNNotifyListener {
 		// this is the function we use in subclipse to know which files need
 		// to be refreshed
 
-		System.out.println("Status of " + path.toString() + " has changed");
+		RunLog.get().debug("svn-status", "path", path, "kind", nodeKind);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @discription: 编译输出目录的文件索引。每个目录在第一次查询时 list 一次，之后的存在性查询和内部类查询都走内存，
+ *               可以在多个线程、多个 Synchronizer 之间共享。
+ */
+public class OutputIndex {
+
+	private static final String CLASS_SUFFIX = ".class";
+
+	private final ConcurrentMap dirs = new ConcurrentHashMap();
+
+	/**
+	 * @discription: 目录下 Outer$*.class 的文件名，不存在时返回空列表。
+	 */
+	public List getInnerClasses(String dir, String outerName) {
+		List names = (List) getDir(dir).innerClasses.get(outerName);
+		return names == null ? Collections.EMPTY_LIST : names;
+	}
+
+	public boolean exists(String dir, String fileName) {
+		return getDir(dir).names.contains(fileName);
+	}
+
+	public void invalidate(String dir) {
+		dirs.remove(normalize(dir));
+	}
+
+	public void clear() {
+		dirs.clear();
+	}
+
+	private DirIndex getDir(String dir) {
+		String key = normalize(dir);
+		DirIndex index = (DirIndex) dirs.get(key);
+		if (index == null) {
+			DirIndex created = new DirIndex(key);
+			index = (DirIndex) dirs.putIfAbsent(key, created);
+			if (index == null) {
+				index = created;
+			}
+		}
+		index.load();
+		return index;
+	}
+
+	private static String normalize(String dir) {
+		String key = dir.replace('\\', '/');
+		while (key.length() > 1 && key.endsWith(FilePath.separator)) {
+			key = key.substring(0, key.length() - 1);
+		}
+		return key;
+	}
+
+	/**
+	 * @discription: 内部类文件名形如 Outer$Inner.class、Outer$1.class，按第一个 $ 之前的类名归类。
+	 */
+	static String getOuterName(String fileName) {
+		if (!fileName.endsWith(CLASS_SUFFIX)) {
+			return null;
+		}
+		int dollar = fileName.indexOf('$');
+		if (dollar <= 0 || dollar == fileName.length() - CLASS_SUFFIX.length() - 1) {
+			return null;
+		}
+		if (fileName.lastIndexOf('.', fileName.length() - CLASS_SUFFIX.length() - 1) > dollar) {
+			return null;
+		}
+		return fileName.substring(0, dollar);
+	}
+
+	private static class DirIndex {
+		private final String path;
+		private volatile boolean loaded;
+		private Set names;
+		private Map innerClasses;
+
+		DirIndex(String path) {
+			this.path = path;
+		}
+
+		void load() {
+			if (loaded) {
+				return;
+			}
+			synchronized (this) {
+				if (loaded) {
+					return;
+				}
+				String[] list = new File(path).list();
+				Set allNames = new HashSet();
+				Map inner = new HashMap();
+				if (list != null) {
+					for (int i = 0; i < list.length; i++) {
+						String name = list[i];
+						allNames.add(name);
+						String outer = getOuterName(name);
+						if (outer != null) {
+							List names = (List) inner.get(outer);
+							if (names == null) {
+								names = new ArrayList();
+								inner.put(outer, names);
+							}
+							names.add(name);
+						}
+					}
+				}
+				this.names = allNames;
+				this.innerClasses = inner;
+				loaded = true;
+			}
+		}
+	}
+}
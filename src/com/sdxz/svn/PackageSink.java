@@ -0,0 +1,16 @@
+package com.sdxz.svn;
+
+/**
+ * @discription: 打包结果的去向：打包目录（{@link CopyPipeline}）或压缩包（{@link ArchiveSink}）。
+ */
+public interface PackageSink {
+
+	public void submit(CopyTask task);
+
+	public CopyReport getReport();
+
+	/**
+	 * @discription: 等待提交的文件全部写完并释放资源。
+	 */
+	public void shutdown();
+}
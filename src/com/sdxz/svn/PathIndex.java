@@ -0,0 +1,152 @@
+package com.sdxz.svn;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
+
+/**
+ * @discription: 路径到版本号的倒排索引。按路径的每一级建树，每个节点记录修改过该节点及其子目录的版本号集合，
+ *               查询某个目录被哪些版本修改过只需要沿路径走到对应节点。新版本的日志可以随时加入。
+ *               每个 {@link LogStore} 带一个索引（{@link LogStore#getPathIndex()}），{@link SVN#selectRevisions} 用它给
+ *               设置了 selectPath 的 SvnDomain 选版本号。
+ */
+public class PathIndex {
+
+	private final Node root = new Node();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private long lastRevision = -1;
+
+	public void add(ISVNLogMessage[] logMessages) {
+		for (int i = 0; i < logMessages.length; i++) {
+			add(logMessages[i]);
+		}
+	}
+
+	public void add(ISVNLogMessage logMessage) {
+		ISVNLogMessageChangePath[] changedPaths = logMessage.getChangedPaths();
+		if (changedPaths == null || changedPaths.length == 0) {
+			return;
+		}
+		long revision = logMessage.getRevision().getNumber();
+		if (revision > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("revision out of range: " + revision);
+		}
+		lock.writeLock().lock();
+		try {
+			for (int i = 0; i < changedPaths.length; i++) {
+				add(changedPaths[i].getPath(), (int) revision);
+			}
+			lastRevision = Math.max(lastRevision, revision);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @discription: 把日志库中 from 到 to 的版本加入索引，库里没有的版本跳过。
+	 */
+	public void add(LogStore store, long from, long to) throws IOException {
+		for (long revision = from; revision <= to; revision++) {
+			ISVNLogMessage logMessage = store.get(revision);
+			if (logMessage != null) {
+				add(logMessage);
+			}
+		}
+	}
+
+	private void add(String path, int revision) {
+		Node node = root;
+		node.revisions.add(revision);
+		int start = 0;
+		int length = path.length();
+		while (start < length) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				end = length;
+			}
+			if (end > start) {
+				node = node.child(path.substring(start, end));
+				node.revisions.add(revision);
+			}
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * @discription: 修改过 path 或其下任何文件的版本号，升序。
+	 */
+	public int[] select(String path) {
+		return select(path, 0, Integer.MAX_VALUE);
+	}
+
+	public int[] select(String path, long from, long to) {
+		lock.readLock().lock();
+		try {
+			Node node = find(path);
+			return node == null ? new int[0] : node.revisions.toArray(from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int count(String path) {
+		lock.readLock().lock();
+		try {
+			Node node = find(path);
+			return node == null ? 0 : node.revisions.cardinality();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @discription: 已加入索引的最大版本号，增量更新时从下一个版本开始取日志。
+	 */
+	public long getLastRevision() {
+		lock.readLock().lock();
+		try {
+			return lastRevision;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Node find(String path) {
+		Node node = root;
+		int start = 0;
+		int length = path.length();
+		while (start < length && node != null) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				end = length;
+			}
+			if (end > start) {
+				node = node.children == null ? null : (Node) node.children.get(path.substring(start, end));
+			}
+			start = end + 1;
+		}
+		return node;
+	}
+
+	private static class Node {
+		final RevisionBitmap revisions = new RevisionBitmap();
+		Map children;
+
+		Node child(String name) {
+			if (children == null) {
+				children = new HashMap(4);
+			}
+			Node child = (Node) children.get(name);
+			if (child == null) {
+				child = new Node();
+				children.put(name, child);
+			}
+			return child;
+		}
+	}
+}
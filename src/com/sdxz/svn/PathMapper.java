@@ -0,0 +1,135 @@
+package com.sdxz.svn;
+
+/**
+ * @discription: 源码目录到输出目录的映射规则，如 src → webapp/WEB-INF/classes。
+ *               规则按路径的每一级编译成前缀树，* 匹配任意一级目录，多条规则都能匹配时取匹配最长的一条。
+ *               映射时只按下标比较字符串，除了结果字符串不分配对象；编译后不再修改，可以在多个线程中同时使用。
+ */
+public class PathMapper {
+
+	public static final String WILDCARD = "*";
+
+	/** 当前的工程结构：源码编译到 webapp/WEB-INF/classes。 */
+	public static final String[][] WEBAPP_RULES = new String[][] {
+			{ "src", "webapp/WEB-INF/classes" },
+			{ "src/main/java", "webapp/WEB-INF/classes" },
+			{ "src/main/resources", "webapp/WEB-INF/classes" },
+			{ "src_lib/*", "webapp/WEB-INF/classes" } };
+
+	/** 以前的工程结构：源码编译到 WEB-INF/classes，WebRoot 下的文件放在根目录。 */
+	public static final String[][] WEBROOT_RULES = new String[][] {
+			{ "src", "WEB-INF/classes" },
+			{ "src_lib/*", "WEB-INF/classes" },
+			{ "WebRoot", "" } };
+
+	private final Node root = new Node();
+	private final String[] targets;
+
+	/**
+	 * @param rules 每条规则为 {源目录, 输出目录}，都是相对工程根目录的路径
+	 */
+	public PathMapper(String[][] rules) {
+		targets = new String[rules.length];
+		for (int i = 0; i < rules.length; i++) {
+			String source = trim(rules[i][0]);
+			if (source.length() == 0) {
+				throw new IllegalArgumentException("empty mapping source at rule " + i);
+			}
+			targets[i] = trim(rules[i][1]);
+			Node node = root;
+			String[] segments = source.split(FilePath.separator);
+			for (int j = 0; j < segments.length; j++) {
+				node = node.child(segments[j]);
+			}
+			node.rule = i;
+		}
+	}
+
+	/**
+	 * @discription: 映射工程内的目录，如 /src/com/inspur → /webapp/WEB-INF/classes/com/inspur，没有匹配的规则时原样返回。
+	 */
+	public String map(String path) {
+		int start = path.startsWith(FilePath.separator) ? 1 : 0;
+		long match = match(root, path, start, -1);
+		if (match < 0) {
+			return path;
+		}
+		int end = (int) (match >>> 32);
+		String target = targets[(int) match];
+		int remainder = path.length() - end;
+		if (target.length() == 0) {
+			return remainder == 0 ? "" : path.substring(end);
+		}
+		StringBuffer mapped = new StringBuffer(1 + target.length() + remainder);
+		mapped.append('/').append(target).append(path, end, path.length());
+		return mapped.toString();
+	}
+
+	/**
+	 * @return 最长匹配的结束下标（高 32 位）和规则序号（低 32 位），没有匹配返回 -1
+	 */
+	private long match(Node node, String path, int pos, int end) {
+		long best = node.rule >= 0 ? ((long) end << 32) | node.rule : -1;
+		int length = path.length();
+		if (pos >= length) {
+			return best;
+		}
+		int segmentEnd = path.indexOf('/', pos);
+		if (segmentEnd < 0) {
+			segmentEnd = length;
+		}
+		int segmentLength = segmentEnd - pos;
+		for (int i = 0; i < node.size; i++) {
+			String name = node.names[i];
+			if (name.length() == segmentLength && path.regionMatches(pos, name, 0, segmentLength)) {
+				best = Math.max(best, match(node.children[i], path, segmentEnd + 1, segmentEnd));
+			}
+		}
+		if (node.wildcard != null && segmentLength > 0) {
+			best = Math.max(best, match(node.wildcard, path, segmentEnd + 1, segmentEnd));
+		}
+		return best;
+	}
+
+	private static String trim(String path) {
+		String trimmed = path.trim();
+		while (trimmed.startsWith(FilePath.separator)) {
+			trimmed = trimmed.substring(1);
+		}
+		while (trimmed.endsWith(FilePath.separator)) {
+			trimmed = trimmed.substring(0, trimmed.length() - 1);
+		}
+		return trimmed;
+	}
+
+	private static class Node {
+		String[] names = new String[0];
+		Node[] children = new Node[0];
+		int size;
+		Node wildcard;
+		int rule = -1;
+
+		Node child(String name) {
+			if (WILDCARD.equals(name)) {
+				if (wildcard == null) {
+					wildcard = new Node();
+				}
+				return wildcard;
+			}
+			for (int i = 0; i < size; i++) {
+				if (names[i].equals(name)) {
+					return children[i];
+				}
+			}
+			String[] newNames = new String[size + 1];
+			Node[] newChildren = new Node[size + 1];
+			System.arraycopy(names, 0, newNames, 0, size);
+			System.arraycopy(children, 0, newChildren, 0, size);
+			newNames[size] = name;
+			newChildren[size] = new Node();
+			names = newNames;
+			children = newChildren;
+			return children[size++];
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+/**
+ * @discription: 不经过本地工作区，直接从版本库取指定版本的文件内容写入打包结果。
+ *               多个文件同时下载，每个文件从客户端池借一个 svn 客户端，下载完马上归还；内容边读边写，不在内存里缓存整个文件。
+ *               打包目录直接写入目标文件；压缩包先写临时文件再交给压缩包，写完压缩包后删除。
+ *               文件按变更的版本号定位（url@revision），之后被改名或删除的文件也能取到。
+ *               下载线程池可以由 {@link #newExecutor(int)} 建一个，在多个工程、多次打包之间共用。
+ */
+public class RepositoryExporter {
+
+	public static final int DEFAULT_WORKERS = 4;
+	private static final int QUEUE_PER_WORKER = 16;
+
+	private final SvnDomain domain;
+	private final PackageSink sink;
+	private final ExecutorService executor;
+	private final ExecutorService ownExecutor;
+	private int pending;
+
+	public RepositoryExporter(SvnDomain domain, PackageSink sink) {
+		this(domain, sink, DEFAULT_WORKERS);
+	}
+
+	/**
+	 * @discription: 使用自己的下载线程池，shutdown 时关闭。
+	 */
+	public RepositoryExporter(SvnDomain domain, PackageSink sink, int workers) {
+		this(domain, sink, newExecutor(workers), true);
+	}
+
+	/**
+	 * @discription: 使用共用的下载线程池，线程池由调用方关闭。
+	 */
+	public RepositoryExporter(SvnDomain domain, PackageSink sink, ExecutorService executor) {
+		this(domain, sink, executor, false);
+	}
+
+	private RepositoryExporter(SvnDomain domain, PackageSink sink, ExecutorService executor, boolean ownExecutor) {
+		this.domain = domain;
+		this.sink = sink;
+		this.executor = executor;
+		this.ownExecutor = ownExecutor ? executor : null;
+	}
+
+	/**
+	 * @discription: 下载线程池，队列满时由提交的线程自己下载。线程是守护线程，共用的线程池忘了关闭也不会让进程不能退出。
+	 */
+	public static ExecutorService newExecutor(int workers) {
+		return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue(workers
+				* QUEUE_PER_WORKER), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "svn-export");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * @param path 相对工程地址的路径，如 /webapp/index.jsp
+	 * @param name 相对打包根目录的输出路径
+	 */
+	public void submit(final String path, final long revision, final String name, final File target) {
+		// 关闭后的线程池会直接丢掉任务，计数永远不会减回去
+		if (executor.isShutdown()) {
+			throw new IllegalStateException("export executor is shut down");
+		}
+		synchronized (this) {
+			pending++;
+		}
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					export(path, revision, name, target);
+				} finally {
+					done();
+				}
+			}
+		});
+	}
+
+	private void export(String path, long revision, String name, File target) {
+		SVN svn = new SVN(domain);
+		File temp = null;
+		try {
+			SVNUrl url = new SVNUrl(domain.getSvnUrl() + path);
+			SVNRevision.Number number = new SVNRevision.Number(revision);
+			if (sink instanceof CopyPipeline) {
+				if (!((CopyPipeline) sink).ensureDirectory(target.getParentFile())) {
+					throw new IOException("系统不能创建指定路径：" + target);
+				}
+				long start = System.nanoTime();
+				// 客户端直接把内容写入目标文件
+				sink.getReport().addCopied(svn.getClient().getContent(url, number, target));
+				sink.getReport().addTime(System.nanoTime() - start);
+			} else {
+				temp = File.createTempFile("svnexport", ".tmp");
+				svn.getClient().getContent(url, number, temp);
+				CopyTask task = new CopyTask(temp, target, name);
+				task.setTemporary(true);
+				sink.submit(task);
+				// 交给压缩包以后由压缩包删除
+				temp = null;
+			}
+			RunLog.get().debug("exported", "path", path, "revision", revision, "target", target);
+		} catch (Exception e) {
+			sink.getReport().addFailed();
+			RunLog.get().error("export-failed", "path", path, "revision", revision, "error", e);
+		} finally {
+			svn.close();
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	private synchronized void done() {
+		pending--;
+		if (pending == 0) {
+			notifyAll();
+		}
+	}
+
+	public synchronized void await() throws InterruptedException {
+		while (pending > 0) {
+			wait();
+		}
+	}
+
+	public void shutdown() {
+		try {
+			await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (ownExecutor != null) {
+			ownExecutor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.sdxz.svn;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @discription: 打包的续传日志，放在打包目录旁边（如 sample 目录对应 sample.journal）。
+ *               每复制完一个文件追加一行 C，每个工程的版本全部复制完追加一行 R；打包成功后删除，
+ *               中途失败时保留，下次打包跳过已经完成的版本和源文件没有变化的已复制文件，没有 C 记录的文件（包括写到一半的）重新复制。
+ *               每行用制表符分隔，以换行结束；文件不以换行结尾时最后一行是写到一半的，读取前截掉。
+ */
+public class ResumeJournal {
+
+	private static final String COPIED = "C";
+	private static final String REVISION = "R";
+
+	private final File file;
+	/** 目标文件的绝对路径 → {源文件大小, 源文件修改时间} */
+	private final Map copied = new HashMap();
+	/** url + 制表符 + 版本号 */
+	private final Set revisions = new HashSet();
+	private FileOutputStream stream;
+	private Writer out;
+
+	public ResumeJournal(File file) throws IOException {
+		this.file = file;
+		load();
+		if (!FileCopy.createPath(file.getAbsoluteFile().getParent())) {
+			throw new IOException("系统不能创建指定路径：" + file);
+		}
+		stream = new FileOutputStream(file, true);
+		out = new OutputStreamWriter(stream, "UTF-8");
+	}
+
+	/**
+	 * @discription: 打包目录对应的续传日志文件。
+	 */
+	public static File forDestination(String destination) {
+		File dest = new File(destination).getAbsoluteFile();
+		return new File(dest.getParentFile(), dest.getName() + ".journal");
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return 上次中断时留下的记录数，没有续传时为 0
+	 */
+	public synchronized int size() {
+		return copied.size() + revisions.size();
+	}
+
+	private void load() throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		truncatePartialLine();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split("\t");
+				try {
+					if (fields.length == 4 && COPIED.equals(fields[0])) {
+						copied.put(fields[1], new long[] { Long.parseLong(fields[2]), Long.parseLong(fields[3]) });
+					} else if (fields.length == 3 && REVISION.equals(fields[0])) {
+						Long.parseLong(fields[2]);
+						revisions.add(fields[1] + "\t" + fields[2]);
+					}
+				} catch (NumberFormatException e) {
+					// 格式不对的行跳过
+				}
+			}
+		} finally {
+			CopyEngine.close(in);
+		}
+	}
+
+	/**
+	 * @discription: 截掉最后一个换行之后的内容。写到一半的行（如 R 行的版本号 123 只写了 12）能正常解析，
+	 *               不截掉会被当成已完成的记录，之后追加的记录也会接在它后面。
+	 */
+	private void truncatePartialLine() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			long end = raf.length();
+			while (end > 0) {
+				raf.seek(end - 1);
+				if (raf.read() == '\n') {
+					break;
+				}
+				end--;
+			}
+			if (end < raf.length()) {
+				RunLog.get().warn("journal-truncated", "file", file, "bytes", raf.length() - end);
+				raf.setLength(end);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * @discription: 上次已经复制过，且源文件大小、修改时间没变，目标文件存在且大小一致。
+	 */
+	public boolean isCopied(CopyTask task) {
+		long[] entry;
+		synchronized (this) {
+			entry = (long[]) copied.get(task.getTarget().getAbsolutePath());
+		}
+		if (entry == null) {
+			return false;
+		}
+		File source = task.getSource();
+		return source.length() == entry[0] && source.lastModified() == entry[1]
+				&& task.getTarget().length() == entry[0];
+	}
+
+	/**
+	 * @param size 复制前取的源文件大小
+	 * @param lastModified 复制前取的源文件修改时间，复制期间源文件被修改时下次会重新复制
+	 */
+	public synchronized void copied(CopyTask task, long size, long lastModified) {
+		String target = task.getTarget().getAbsolutePath();
+		copied.put(target, new long[] { size, lastModified });
+		append(COPIED + "\t" + target + "\t" + size + "\t" + lastModified + "\n", false);
+	}
+
+	public synchronized boolean isRevisionDone(String url, long revision) {
+		return revisions.contains(url + "\t" + revision);
+	}
+
+	/**
+	 * @discription: 工程的这些版本已经全部复制完成，写入后强制刷到磁盘。
+	 */
+	public synchronized void revisionsDone(String url, int[] done) {
+		StringBuffer lines = new StringBuffer();
+		for (int i = 0; i < done.length; i++) {
+			revisions.add(url + "\t" + done[i]);
+			lines.append(REVISION).append('\t').append(url).append('\t').append(done[i]).append('\n');
+		}
+		append(lines.toString(), true);
+	}
+
+	private void append(String line, boolean force) {
+		if (out == null) {
+			return;
+		}
+		try {
+			out.write(line);
+			out.flush();
+			if (force) {
+				stream.getFD().sync();
+			}
+		} catch (IOException e) {
+			// 日志写不进去不影响打包，只是下次不能续传
+			RunLog.get().error("journal-failed", "file", file, "error", e);
+		}
+	}
+
+	/**
+	 * @discription: 保留日志文件，下次打包从这里继续。
+	 */
+	public synchronized void close() {
+		if (out == null) {
+			return;
+		}
+		try {
+			out.flush();
+			stream.getFD().sync();
+		} catch (IOException e) {
+			RunLog.get().error("journal-failed", "file", file, "error", e);
+		}
+		CopyEngine.close(out);
+		out = null;
+	}
+
+	/**
+	 * @discription: 打包成功，删除日志文件。
+	 */
+	public synchronized void complete() {
+		close();
+		if (!file.delete() && file.exists()) {
+			RunLog.get().warn("journal-not-deleted", "file", file);
+		}
+		copied.clear();
+		revisions.clear();
+	}
+}
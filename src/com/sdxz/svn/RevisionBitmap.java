@@ -0,0 +1,218 @@
+package com.sdxz.svn;
+
+import java.util.Arrays;
+
+/**
+ * @discription: 压缩的版本号集合。版本号按高 16 位分块，块内版本少时存有序的 char 数组，
+ *               超过 4096 个时换成 1024 个 long 的位图，稀疏和密集的版本分布都比较省内存。
+ *               本类不是线程安全的，由 {@link PathIndex} 加锁保护。
+ */
+class RevisionBitmap {
+
+	private static final int ARRAY_MAX = 4096;
+	private static final int BITMAP_WORDS = 1024;
+
+	private int[] keys = new int[0];
+	private Container[] containers = new Container[0];
+	private int size;
+
+	public boolean add(int revision) {
+		if (revision < 0) {
+			throw new IllegalArgumentException("revision: " + revision);
+		}
+		int key = revision >>> 16;
+		char low = (char) (revision & 0xFFFF);
+		int index = Arrays.binarySearch(keys, 0, size, key);
+		if (index < 0) {
+			index = -index - 1;
+			insert(index, key);
+		}
+		return containers[index].add(low);
+	}
+
+	public boolean contains(int revision) {
+		int index = Arrays.binarySearch(keys, 0, size, revision >>> 16);
+		return index >= 0 && containers[index].contains((char) (revision & 0xFFFF));
+	}
+
+	public int cardinality() {
+		int cardinality = 0;
+		for (int i = 0; i < size; i++) {
+			cardinality += containers[i].count;
+		}
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int last() {
+		if (size == 0) {
+			return -1;
+		}
+		return (keys[size - 1] << 16) | containers[size - 1].last();
+	}
+
+	/**
+	 * @discription: from 到 to（含）之间的版本号，升序。
+	 */
+	public int[] toArray(long from, long to) {
+		int[] result = new int[cardinality()];
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			long base = ((long) keys[i]) << 16;
+			if (base + 0xFFFF < from || base > to) {
+				continue;
+			}
+			n = containers[i].copyTo(result, n, keys[i] << 16, from, to);
+		}
+		return n == result.length ? result : copyOf(result, n);
+	}
+
+	public int[] toArray() {
+		return toArray(0, Integer.MAX_VALUE);
+	}
+
+	public void addAll(RevisionBitmap other) {
+		for (int i = 0; i < other.size; i++) {
+			int index = Arrays.binarySearch(keys, 0, size, other.keys[i]);
+			if (index < 0) {
+				index = -index - 1;
+				insert(index, other.keys[i]);
+			}
+			containers[index].addAll(other.containers[i]);
+		}
+	}
+
+	private void insert(int index, int key) {
+		if (size == keys.length) {
+			int capacity = Math.max(4, size * 2);
+			int[] newKeys = new int[capacity];
+			Container[] newContainers = new Container[capacity];
+			System.arraycopy(keys, 0, newKeys, 0, size);
+			System.arraycopy(containers, 0, newContainers, 0, size);
+			keys = newKeys;
+			containers = newContainers;
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		keys[index] = key;
+		containers[index] = new Container();
+		size++;
+	}
+
+	private static int[] copyOf(int[] values, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(values, 0, copy, 0, length);
+		return copy;
+	}
+
+	/**
+	 * @discription: 一个 2^16 的块，values 和 bits 同时只用一个。
+	 */
+	private static class Container {
+		char[] values = new char[4];
+		long[] bits;
+		int count;
+
+		boolean add(char low) {
+			if (bits != null) {
+				long mask = 1L << low;
+				int word = low >>> 6;
+				if ((bits[word] & mask) != 0) {
+					return false;
+				}
+				bits[word] |= mask;
+				count++;
+				return true;
+			}
+			int index = Arrays.binarySearch(values, 0, count, low);
+			if (index >= 0) {
+				return false;
+			}
+			if (count == ARRAY_MAX) {
+				toBitmap();
+				return add(low);
+			}
+			index = -index - 1;
+			if (count == values.length) {
+				char[] newValues = new char[Math.min(ARRAY_MAX, count * 2)];
+				System.arraycopy(values, 0, newValues, 0, count);
+				values = newValues;
+			}
+			System.arraycopy(values, index, values, index + 1, count - index);
+			values[index] = low;
+			count++;
+			return true;
+		}
+
+		boolean contains(char low) {
+			if (bits != null) {
+				return (bits[low >>> 6] & (1L << low)) != 0;
+			}
+			return Arrays.binarySearch(values, 0, count, low) >= 0;
+		}
+
+		void addAll(Container other) {
+			if (other.bits != null) {
+				if (bits == null) {
+					toBitmap();
+				}
+				int total = 0;
+				for (int i = 0; i < BITMAP_WORDS; i++) {
+					bits[i] |= other.bits[i];
+					total += Long.bitCount(bits[i]);
+				}
+				count = total;
+				return;
+			}
+			for (int i = 0; i < other.count; i++) {
+				add(other.values[i]);
+			}
+		}
+
+		int last() {
+			if (bits == null) {
+				return values[count - 1];
+			}
+			for (int i = BITMAP_WORDS - 1; i >= 0; i--) {
+				if (bits[i] != 0) {
+					return i * 64 + 63 - Long.numberOfLeadingZeros(bits[i]);
+				}
+			}
+			return -1;
+		}
+
+		int copyTo(int[] result, int n, int base, long from, long to) {
+			if (bits == null) {
+				for (int i = 0; i < count; i++) {
+					int revision = base | values[i];
+					if (revision >= from && revision <= to) {
+						result[n++] = revision;
+					}
+				}
+				return n;
+			}
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long word = bits[i];
+				while (word != 0) {
+					int revision = base | (i * 64 + Long.numberOfTrailingZeros(word));
+					if (revision >= from && revision <= to) {
+						result[n++] = revision;
+					}
+					word &= word - 1;
+				}
+			}
+			return n;
+		}
+
+		private void toBitmap() {
+			bits = new long[BITMAP_WORDS];
+			for (int i = 0; i < count; i++) {
+				bits[values[i] >>> 6] |= 1L << values[i];
+			}
+			values = null;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.sdxz.svn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @discription: 连续的版本号区间 [begin, end]，用于把多个版本号合并成尽量少的 svn log 请求。
+ */
+class RevisionRange {
+
+	private final long begin;
+	private final long end;
+
+	public RevisionRange(long begin, long end) {
+		this.begin = begin;
+		this.end = end;
+	}
+
+	public long getBegin() {
+		return begin;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public boolean contains(long revision) {
+		return revision >= begin && revision <= end;
+	}
+
+	/**
+	 * @discription: 把版本号排序、去重后合并为区间。相邻版本号之间的空档不超过 maxGap 时合并到同一区间，
+	 *               多取回来的版本再由调用方按请求的版本号过滤掉。
+	 */
+	public static List collapse(int[] revisions, int maxGap) {
+		List ranges = new ArrayList();
+		if (revisions == null || revisions.length == 0) {
+			return ranges;
+		}
+		int[] sorted = revisions.clone();
+		Arrays.sort(sorted);
+
+		long begin = sorted[0];
+		long end = sorted[0];
+		for (int i = 1; i < sorted.length; i++) {
+			long n = sorted[i];
+			if (n - end - 1 <= maxGap) {
+				end = Math.max(end, n);
+			} else {
+				ranges.add(new RevisionRange(begin, end));
+				begin = n;
+				end = n;
+			}
+		}
+		ranges.add(new RevisionRange(begin, end));
+		return ranges;
+	}
+
+	public String toString() {
+		return begin == end ? String.valueOf(begin) : begin + ":" + end;
+	}
+}
@@ -0,0 +1,348 @@
+package com.sdxz.svn;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * @discription: 异步的运行日志。记录先放进固定大小的环形缓冲区，由后台线程成批写出，打包线程不再等控制台输出。
+ *               每条记录一行：时间 级别 [线程] 事件 key=value ...，可以直接 grep，如 grep " missing " run.log。
+ *               值是异常时记录里写异常本身，堆栈跟在记录后面，每行以制表符开头，grep -v "^\t" 只看记录。
+ *               缓冲区满时 DEBUG/TRACE 记录被丢弃并计数，WARN/ERROR 记录等待写出。
+ *               级别和输出文件可以用系统属性 svnpackage.log.level（TRACE/DEBUG/INFO/WARN/ERROR）和 svnpackage.log.file 设置。
+ */
+public class RunLog {
+
+	public static final int TRACE = 0;
+	public static final int DEBUG = 1;
+	public static final int INFO = 2;
+	public static final int WARN = 3;
+	public static final int ERROR = 4;
+
+	private static final String[] LEVELS = new String[] { "TRACE", "DEBUG", "INFO ", "WARN ", "ERROR" };
+	private static final int DEFAULT_CAPACITY = 8192;
+
+	private static RunLog defaultLog;
+
+	private final Record[] ring;
+	private final int mask;
+	private final Object lock = new Object();
+	private final Writer out;
+	private final Thread writer;
+	private volatile int level;
+	private long head;
+	private long tail;
+	private long written;
+	private long dropped;
+	private boolean closed;
+
+	/**
+	 * @param capacity 缓冲区能放的记录数，取不小于它的 2 的幂
+	 */
+	public RunLog(OutputStream out, int level, int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.ring = new Record[size];
+		this.mask = size - 1;
+		this.level = level;
+		try {
+			this.out = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), 64 * 1024);
+		} catch (IOException e) {
+			throw new IllegalStateException(e.toString());
+		}
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "svnpackage-runlog");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * @discription: 默认日志，第一次使用时按系统属性创建，JVM 退出前写完缓冲区中的记录。
+	 */
+	public static synchronized RunLog get() {
+		if (defaultLog == null) {
+			OutputStream out = System.out;
+			String file = System.getProperty("svnpackage.log.file");
+			if (file != null) {
+				try {
+					out = new FileOutputStream(new File(file), true);
+				} catch (IOException e) {
+					System.err.println("\t run log file not opened, use console : \t" + file + "\t" + e);
+				}
+			}
+			defaultLog = new RunLog(out, parseLevel(System.getProperty("svnpackage.log.level"), INFO),
+					DEFAULT_CAPACITY);
+			final RunLog log = defaultLog;
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run() {
+					log.flush();
+				}
+			});
+		}
+		return defaultLog;
+	}
+
+	public static int parseLevel(String name, int defaultLevel) {
+		if (name == null) {
+			return defaultLevel;
+		}
+		for (int i = 0; i < LEVELS.length; i++) {
+			if (LEVELS[i].trim().equalsIgnoreCase(name.trim())) {
+				return i;
+			}
+		}
+		return defaultLevel;
+	}
+
+	public void setLevel(int level) {
+		this.level = level;
+	}
+
+	public boolean isEnabled(int level) {
+		return level >= this.level;
+	}
+
+	public void trace(String event, Object... fields) {
+		log(TRACE, event, fields);
+	}
+
+	public void debug(String event, Object... fields) {
+		log(DEBUG, event, fields);
+	}
+
+	public void info(String event, Object... fields) {
+		log(INFO, event, fields);
+	}
+
+	public void warn(String event, Object... fields) {
+		log(WARN, event, fields);
+	}
+
+	public void error(String event, Object... fields) {
+		log(ERROR, event, fields);
+	}
+
+	/**
+	 * @param fields 依次为 key, value, key, value ...
+	 */
+	public void log(int level, String event, Object[] fields) {
+		if (level < this.level) {
+			return;
+		}
+		// 可变对象在这里转成字符串，写出时的内容与记录时一致
+		StringBuffer trace = null;
+		for (int i = 1; i < fields.length; i += 2) {
+			Object value = fields[i];
+			if (value instanceof Throwable) {
+				if (trace == null) {
+					trace = new StringBuffer();
+				}
+				appendStackTrace(trace, (Throwable) value);
+			}
+			if (value != null && !(value instanceof String) && !(value instanceof Number)
+					&& !(value instanceof Character) && !(value instanceof Boolean)) {
+				fields[i] = String.valueOf(value);
+			}
+		}
+		Record record = new Record(System.currentTimeMillis(), level, Thread.currentThread().getName(), event, fields,
+				trace == null ? null : trace.toString());
+		synchronized (lock) {
+			while (head - tail == ring.length && !closed) {
+				if (level < WARN) {
+					dropped++;
+					return;
+				}
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			if (closed) {
+				return;
+			}
+			ring[(int) (head & mask)] = record;
+			head++;
+			if (head - tail == 1) {
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * @discription: 堆栈的每一行前面加制表符，第一行（异常本身）已经写在记录里，跳过。
+	 */
+	private static void appendStackTrace(StringBuffer trace, Throwable t) {
+		StringWriter text = new StringWriter();
+		PrintWriter printer = new PrintWriter(text);
+		t.printStackTrace(printer);
+		printer.flush();
+		String[] lines = text.toString().split("\r?\n");
+		for (int i = 1; i < lines.length; i++) {
+			trace.append('\t').append(lines[i]).append('\n');
+		}
+	}
+
+	/**
+	 * @discription: 等待此前的记录全部写出，之后直接打印到控制台的内容不会与日志交错。
+	 */
+	public void flush() {
+		synchronized (lock) {
+			long target = head;
+			while (written < target && writer.isAlive()) {
+				try {
+					lock.wait(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	public void close() {
+		flush();
+		synchronized (lock) {
+			closed = true;
+			lock.notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public long getDropped() {
+		synchronized (lock) {
+			return dropped;
+		}
+	}
+
+	private void drain() {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+		StringBuffer line = new StringBuffer(256);
+		Record[] batch = new Record[ring.length];
+		long reportedDrops = 0;
+		while (true) {
+			int count;
+			long drops;
+			synchronized (lock) {
+				while (head == tail && !closed) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (head == tail) {
+					return;
+				}
+				count = (int) (head - tail);
+				for (int i = 0; i < count; i++) {
+					int slot = (int) ((tail + i) & mask);
+					batch[i] = ring[slot];
+					ring[slot] = null;
+				}
+				tail = head;
+				drops = dropped;
+				lock.notifyAll();
+			}
+			try {
+				if (drops > reportedDrops) {
+					out.write(format.format(new Date()) + " WARN  [" + writer.getName() + "] dropped count="
+							+ (drops - reportedDrops) + "\n");
+					reportedDrops = drops;
+				}
+				for (int i = 0; i < count; i++) {
+					line.setLength(0);
+					batch[i].format(format, line);
+					out.write(line.toString());
+					batch[i] = null;
+				}
+				out.flush();
+			} catch (IOException e) {
+				System.err.println("\t run log write failed : \t" + e);
+			}
+			synchronized (lock) {
+				written += count;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private static class Record {
+		final long time;
+		final int level;
+		final String thread;
+		final String event;
+		final Object[] fields;
+		/** 字段里异常的堆栈，没有异常时为 null */
+		final String trace;
+
+		Record(long time, int level, String thread, String event, Object[] fields, String trace) {
+			this.time = time;
+			this.level = level;
+			this.thread = thread;
+			this.event = event;
+			this.fields = fields;
+			this.trace = trace;
+		}
+
+		void format(SimpleDateFormat format, StringBuffer line) {
+			line.append(format.format(new Date(time))).append(' ').append(LEVELS[level]);
+			line.append(" [").append(thread).append("] ").append(event);
+			for (int i = 0; i + 1 < fields.length; i += 2) {
+				line.append(' ').append(fields[i]).append('=');
+				appendValue(line, fields[i + 1]);
+			}
+			line.append('\n');
+			if (trace != null) {
+				line.append(trace);
+			}
+		}
+
+		/**
+		 * @discription: 含空白、引号、等号的值加双引号，换行转义，保证一条记录只占一行。
+		 */
+		private static void appendValue(StringBuffer line, Object value) {
+			String text = String.valueOf(value);
+			boolean quote = text.length() == 0;
+			for (int i = 0; i < text.length() && !quote; i++) {
+				char c = text.charAt(i);
+				quote = c <= ' ' || c == '"' || c == '=';
+			}
+			if (!quote) {
+				line.append(text);
+				return;
+			}
+			line.append('"');
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				if (c == '"' || c == '\\') {
+					line.append('\\').append(c);
+				} else if (c == '\n') {
+					line.append("\\n");
+				} else if (c == '\r') {
+					line.append("\\r");
+				} else if (c == '\t') {
+					line.append("\\t");
+				} else {
+					line.append(c);
+				}
+			}
+			line.append('"');
+		}
+	}
+}
@@ -1,61 +1,551 @@
 package com.sdxz.svn;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+import org.tigris.subversion.svnclientadapter.ISVNInfo;
 import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
-import org.tigris.subversion.svnclientadapter.SVNClientAdapterFactory;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageCallback;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
 import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNLogMessageChangePath;
 import org.tigris.subversion.svnclientadapter.SVNRevision;
 import org.tigris.subversion.svnclientadapter.SVNUrl;
+import org.tigris.subversion.svnclientadapter.commandline.CmdLineClientAdapterFactory;
 import org.tigris.subversion.svnclientadapter.javahl.JhlClientAdapterFactory;
 import org.tigris.subversion.svnclientadapter.javasvn.JavaSvnClientAdapterFactory;
 
+/**
+ * @discription: 一个 SvnDomain 对应一个 SVN 实例，持有自己的地址、用户名、密码和客户端，多个实例可以并行使用。
+ */
 public class SVN {
 
-	static SVNUrl url = null;
-	static String SVNPATH = "";
-	static String USERNAME = "";
-	static String PASSWORD = "";
+	/** 合并版本区间时允许跨过的未请求版本数，跨过的版本取回后会被过滤掉。 */
+	static int LOG_RANGE_GAP = 10;
 
+	private final String svnPath;
+	private final String username;
+	private final String password;
+	private SVNUrl url;
+	private ISVNClientAdapter svnClient;
+	private ISVNClientAdapter tracedClient;
+	/** getClient() 借出的客户端一直持有到 close() */
+	private boolean held;
+	/** 正在执行的方法数，全部结束且没有被 getClient() 持有时归还客户端 */
+	private int calls;
+	private SyncMetrics metrics;
+	private LogCache logCache;
+	private ClientPool clientPool = ClientPool.getDefault();
+
+	public SVN(SvnDomain domain) {
+		this(domain.getSvnUrl(), domain.getUsername(), domain.getPassword());
+	}
+
+	public SVN(String svnPath, String username, String password) {
+		this.svnPath = svnPath;
+		this.username = username;
+		this.password = password;
+	}
+
+	/**
+	 * @discription: 注册 svn 客户端，先注册的优先使用；两个 java 客户端都不可用时用命令行 svn。
+	 */
 	public static void setup() {
 		try {
 			JhlClientAdapterFactory.setup();
 		} catch (SVNClientException e) {
-			System.out.println(e.getLocalizedMessage());
+			RunLog.get().info("client-unavailable", "client", "javahl", "error", e.getLocalizedMessage());
 		}
 		try {
 			JavaSvnClientAdapterFactory.setup();
 		} catch (SVNClientException e) {
-			e.printStackTrace();
+			RunLog.get().error("client-unavailable", "client", "javasvn", "error", e);
 		}
-	}
-
-	public static ISVNLogMessage[] getLogMessages(SVNRevision beginNumber, SVNRevision endNumber) {
-		ISVNClientAdapter svnClient = null;
 		try {
-			String bestClientType = SVNClientAdapterFactory.getPreferredSVNClientType();
-			svnClient = SVNClientAdapterFactory.createSVNClient(bestClientType);
+			CmdLineClientAdapterFactory.setup();
 		} catch (SVNClientException e) {
-			e.printStackTrace();
+			RunLog.get().info("client-unavailable", "client", "svn", "error", e.getLocalizedMessage());
 		}
-		// 设置用户名和密码
-		svnClient.setUsername(USERNAME);
-		svnClient.setPassword(PASSWORD);
+	}
+
+	/**
+	 * @discription: 设置后日志先从本地日志库取，库里没有的版本才访问服务器。
+	 */
+	public void setLogCache(LogCache logCache) {
+		this.logCache = logCache;
+	}
 
-		SVNRevision beginRevision = beginNumber;
-		SVNRevision endRevision = endNumber;
+	public String getSvnPath() {
+		return svnPath;
+	}
+
+	public synchronized SVNUrl getUrl() {
+		if (url == null) {
+			try {
+				url = new SVNUrl(svnPath);
+			} catch (MalformedURLException e) {
+				RunLog.get().error("url-invalid", "url", svnPath, "error", e);
+			}
+		}
+		return url;
+	}
+
+	/**
+	 * @discription: 设置借用客户端的池，默认为 {@link ClientPool#getDefault()}。
+	 */
+	public void setClientPool(ClientPool clientPool) {
+		this.clientPool = clientPool;
+	}
+
+	/**
+	 * @discription: 设置后记录每次客户端调用的耗时，需要在第一次使用客户端之前设置。
+	 */
+	public void setMetrics(SyncMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @discription: 从客户端池借出客户端并一直持有，{@link #close()} 时归还；借不到时抛出异常。
+	 *               本类自己的方法每次调用时借用、调用结束就归还，不需要先调用这里。
+	 */
+	public synchronized ISVNClientAdapter getClient() throws SVNClientException {
+		ISVNClientAdapter client = lease();
+		held = true;
+		return client;
+	}
+
+	private synchronized ISVNClientAdapter lease() throws SVNClientException {
+		if (svnClient == null) {
+			if (getUrl() == null) {
+				throw new SVNClientException("invalid svn url: " + svnPath);
+			}
+			// 借出时设置用户名和密码
+			svnClient = clientPool.borrow(url, username, password);
+			tracedClient = metrics != null ? metrics.trace(svnClient) : svnClient;
+		}
+		return tracedClient;
+	}
+
+	/**
+	 * @discription: 一次方法调用开始时借用客户端，必须与 {@link #release()} 成对使用。
+	 */
+	private synchronized ISVNClientAdapter acquire() throws SVNClientException {
+		ISVNClientAdapter client = lease();
+		calls++;
+		return client;
+	}
+
+	private synchronized void release() {
+		calls--;
+		if (calls == 0 && !held) {
+			returnClient();
+		}
+	}
+
+	/**
+	 * @discription: 把客户端还给客户端池，之后再使用会重新借出。正在执行的方法结束时才归还。
+	 */
+	public synchronized void close() {
+		held = false;
+		if (calls == 0) {
+			returnClient();
+		}
+	}
+
+	private void returnClient() {
+		if (svnClient != null) {
+			clientPool.release(svnClient);
+			svnClient = null;
+			tracedClient = null;
+		}
+	}
+
+	public ISVNLogMessage[] getLogMessages(SVNRevision beginNumber, SVNRevision endNumber) {
+		ISVNClientAdapter client;
 		try {
-			url = new SVNUrl(SVNPATH);
-		} catch (MalformedURLException e) {
-			e.printStackTrace();
+			client = acquire();
+		} catch (SVNClientException e) {
+			RunLog.get().error("log-failed", "url", svnPath, "error", e);
+			return null;
 		}
 		ISVNLogMessage[] logMessages = null;
 		try {
-			logMessages = svnClient.getLogMessages(url, beginRevision, endRevision);
+			logMessages = client.getLogMessages(getUrl(), beginNumber, endNumber);
 		} catch (SVNClientException e) {
-			e.printStackTrace();
+			RunLog.get().error("log-failed", "url", svnPath, "from", beginNumber, "to", endNumber, "error", e);
+		} finally {
+			release();
 		}
 		return logMessages;
 	}
+
+	/**
+	 * @discription: 按版本号集合取日志。版本号先合并成连续区间，每个区间只请求一次服务器，
+	 *               再过滤出请求的版本号。设置了本地日志库时，只有库里没有的版本才请求服务器。
+	 */
+	public ISVNLogMessage[] getLogMessages(int[] revisions) {
+		try {
+			return getLogMessages(revisions, false);
+		} catch (SVNClientException e) {
+			RunLog.get().error("log-failed", "url", svnPath, "error", e);
+			return new ISVNLogMessage[0];
+		}
+	}
+
+	/**
+	 * @discription: 与 getLogMessages(int[]) 相同，但任何一个区间取日志失败都抛出异常，而不是跳过该区间。
+	 */
+	public ISVNLogMessage[] fetchLogMessages(int[] revisions) throws SVNClientException {
+		return getLogMessages(revisions, true);
+	}
+
+	private ISVNLogMessage[] getLogMessages(int[] revisions, boolean strict) throws SVNClientException {
+		if (revisions == null || revisions.length == 0) {
+			return new ISVNLogMessage[0];
+		}
+		int[] requested = revisions.clone();
+		Arrays.sort(requested);
+		ISVNClientAdapter client = acquire();
+		try {
+			if (logCache != null) {
+				try {
+					return getCachedLogMessages(client, requested, strict);
+				} catch (IOException e) {
+					RunLog.get().warn("log-cache-failed", "url", svnPath, "error", e);
+				}
+			}
+			return fetchLogMessages(client, requested, strict);
+		} finally {
+			release();
+		}
+	}
+
+	private ISVNLogMessage[] fetchLogMessages(ISVNClientAdapter client, final int[] requested, boolean strict)
+			throws SVNClientException {
+		final List result = new ArrayList();
+		for (Iterator iter = RevisionRange.collapse(requested, LOG_RANGE_GAP).iterator(); iter.hasNext();) {
+			RevisionRange range = (RevisionRange) iter.next();
+			final int size = result.size();
+			try {
+				// 边读边过滤，区间内没有请求的版本不会留在内存里
+				client.getLogMessages(getUrl(), new SVNRevision.Number(range.getBegin()), new SVNRevision.Number(range
+						.getEnd()), true, new ISVNLogMessageCallback() {
+					public void singleMessage(ISVNLogMessage logMessage) {
+						long revision = logMessage.getRevision().getNumber();
+						if (revision <= Integer.MAX_VALUE && Arrays.binarySearch(requested, (int) revision) >= 0) {
+							result.add(logMessage);
+						}
+					}
+				});
+			} catch (SVNClientException e) {
+				if (strict) {
+					throw e;
+				}
+				// 失败的区间整段跳过，不保留读到一半的日志
+				result.subList(size, result.size()).clear();
+				RunLog.get().error("log-failed", "url", svnPath, "range", range, "error", e);
+			}
+		}
+		return (ISVNLogMessage[]) result.toArray(new ISVNLogMessage[result.size()]);
+	}
+
+	/**
+	 * @discription: from 到 to 之间修改过工程地址下 path（相对工程地址，空串表示整个工程）的版本号，升序，
+	 *               可以直接作为 SvnDomain 的 svnVersions。设置了日志库时先把区间内库里没有的版本取进库，再查库的路径索引；
+	 *               没有日志库或日志库不能用时在工程地址上取一次区间的日志，建一个临时索引。
+	 * @param to 终点版本号，-1 表示工程地址最后一次变更的版本
+	 */
+	public int[] selectRevisions(String path, long from, long to) throws SVNClientException {
+		ISVNClientAdapter client = acquire();
+		try {
+			return selectRevisions(client, path, from, to);
+		} finally {
+			release();
+		}
+	}
+
+	private int[] selectRevisions(ISVNClientAdapter client, String path, long from, long to)
+			throws SVNClientException {
+		if (to < 0) {
+			to = getLastChangedRevision();
+		}
+		from = Math.max(0, from);
+		if (from > to) {
+			return new int[0];
+		}
+		if (to > Integer.MAX_VALUE) {
+			throw new SVNClientException("revision out of range: " + to);
+		}
+		String subPath = path == null ? "" : path.replace('\\', '/');
+		if (logCache != null) {
+			try {
+				String root = logCache.getRepositoryRoot(getUrl(), client);
+				LogStore store = logCache.getStore(root);
+				int[] range = new int[(int) (to - from + 1)];
+				for (int i = 0; i < range.length; i++) {
+					range[i] = (int) from + i;
+				}
+				int[] missing = getMissing(store, range);
+				if (missing.length > 0) {
+					if (store.isReadOnly()) {
+						throw new IOException("log store is locked by another process: " + store.getDirectory());
+					}
+					fetchIntoStore(client, new SVNUrl(root), missing, store, false);
+				}
+				return store.getPathIndex().select(getUrlPath(root) + FilePath.separator + subPath, from, to);
+			} catch (IOException e) {
+				RunLog.get().warn("log-cache-failed", "url", svnPath, "error", e);
+			}
+		}
+		String root = getRepositoryRoot();
+		if (root == null || !getUrl().toString().startsWith(root)) {
+			throw new SVNClientException("repository root not found for " + svnPath);
+		}
+		final PathIndex index = new PathIndex();
+		client.getLogMessages(getUrl(), new SVNRevision.Number(from), new SVNRevision.Number(to), true,
+				new ISVNLogMessageCallback() {
+					public void singleMessage(ISVNLogMessage logMessage) {
+						index.add(logMessage);
+					}
+				});
+		return index.select(getUrlPath(root) + FilePath.separator + subPath, from, to);
+	}
+
+	/**
+	 * @discription: 工程地址下最后一次变更的版本号，用于轮询是否有新的提交。
+	 */
+	public long getLastChangedRevision() throws SVNClientException {
+		ISVNClientAdapter client = acquire();
+		try {
+			ISVNInfo info = client.getInfo(getUrl());
+			if (info == null || info.getLastChangedRevision() == null) {
+				throw new SVNClientException("no revision info for " + svnPath);
+			}
+			return info.getLastChangedRevision().getNumber();
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * @discription: 用一次 svn diff --summarize 取 baseUrl@baseRevision 到工程地址@targetRevision 之间的净变更，
+	 *               只传路径不传日志内容。变更路径换成工程地址在版本库根下的路径（与 svn log 的路径相同），
+	 *               合成一条版本号为终点版本的日志，可以直接交给 {@link ChangeSet}。
+	 * @param baseUrl 起点地址，null 表示工程地址
+	 * @param baseRevision 起点版本号，-1 表示起点地址的最新版本
+	 * @param targetRevision 终点版本号，-1 表示工程地址最后一次变更的版本
+	 */
+	public ISVNLogMessage getChangedPaths(SVNUrl baseUrl, long baseRevision, long targetRevision)
+			throws SVNClientException {
+		ISVNClientAdapter client = acquire();
+		try {
+			return getChangedPaths(client, baseUrl, baseRevision, targetRevision);
+		} finally {
+			release();
+		}
+	}
+
+	private ISVNLogMessage getChangedPaths(ISVNClientAdapter client, SVNUrl baseUrl, long baseRevision,
+			long targetRevision) throws SVNClientException {
+		String root = getRepositoryRoot();
+		if (root == null || !getUrl().toString().startsWith(root)) {
+			throw new SVNClientException("repository root not found for " + svnPath);
+		}
+		if (targetRevision < 0) {
+			// 资源文件按变更的版本号导出，终点必须是具体的版本号
+			targetRevision = getLastChangedRevision();
+		}
+		SVNUrl base = baseUrl != null ? baseUrl : getUrl();
+		SVNRevision from = baseRevision < 0 ? SVNRevision.HEAD : new SVNRevision.Number(baseRevision);
+		ISVNLogMessageChangePath[] summary = client.diffSummarize(base, from, getUrl(), new SVNRevision.Number(
+				targetRevision), true);
+
+		String urlPath = getUrl().toString().substring(root.length());
+		while (urlPath.endsWith(FilePath.separator)) {
+			urlPath = urlPath.substring(0, urlPath.length() - 1);
+		}
+		List changedPaths = new ArrayList(summary.length);
+		for (int i = 0; i < summary.length; i++) {
+			String path = summary[i].getPath();
+			// 工程目录本身一般只是属性变化（如 svn:mergeinfo），没有要复制的文件
+			if (path.length() > 0) {
+				changedPaths.add(new SVNLogMessageChangePath(urlPath + FilePath.separator + path, null, null,
+						summary[i].getAction()));
+			}
+		}
+		return new CachedLogMessage(targetRevision, null, null, "diff " + base + "@" + from + " " + getUrl() + "@"
+				+ targetRevision, (ISVNLogMessageChangePath[]) changedPaths
+				.toArray(new ISVNLogMessageChangePath[changedPaths.size()]));
+	}
+
+	/**
+	 * @discription: 版本库根地址，设置了本地日志库时从库里取，取不到返回 null。
+	 */
+	public String getRepositoryRoot() {
+		ISVNClientAdapter client;
+		try {
+			client = acquire();
+		} catch (SVNClientException e) {
+			RunLog.get().error("repository-root-failed", "url", svnPath, "error", e);
+			return null;
+		}
+		try {
+			if (logCache != null) {
+				String root = logCache.getRepositoryRoot(getUrl(), client);
+				clientPool.addRoot(root);
+				return root;
+			}
+			ISVNInfo info = client.getInfo(getUrl());
+			if (info == null || info.getRepository() == null) {
+				return null;
+			}
+			clientPool.addRoot(info.getRepository().toString());
+			return info.getRepository().toString();
+		} catch (SVNClientException e) {
+			RunLog.get().error("repository-root-failed", "url", svnPath, "error", e);
+			return null;
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * @discription: 库里没有的版本在版本库根上取日志，根上的日志包含区间内的每个版本，取回后全部存入日志库；
+	 *               取不到版本库根时在工程地址上取，服务器没有返回的版本记为与本工程无关。
+	 *               根上取日志失败（常见的是 authz 不让读根目录）时抛出 IOException，调用方改在工程地址上直接取；
+	 *               strict 时直接抛出 SVNClientException。
+	 *               日志库被别的进程锁住（只读）时，库里有的版本照常从库里取，没有的版本在工程地址上取，不存入库。
+	 */
+	private ISVNLogMessage[] getCachedLogMessages(ISVNClientAdapter client, int[] requested, boolean strict)
+			throws IOException, SVNClientException {
+		String root = logCache.getRepositoryRoot(getUrl(), client);
+		clientPool.addRoot(root);
+		LogStore store = logCache.getStore(root);
+
+		int[] missing = getMissing(store, requested);
+		Map fetched = new HashMap();
+		if (missing.length > 0) {
+			if (store.isReadOnly()) {
+				ISVNLogMessage[] logMessages = fetchLogMessages(client, missing, strict);
+				for (int i = 0; i < logMessages.length; i++) {
+					fetched.put(Long.valueOf(logMessages[i].getRevision().getNumber()), logMessages[i]);
+				}
+			} else {
+				fetchIntoStore(client, new SVNUrl(root), missing, store, strict);
+			}
+		}
+
+		String urlPath = getUrlPath(root);
+		List result = new ArrayList();
+		for (int i = 0; i < requested.length; i++) {
+			if (i > 0 && requested[i] == requested[i - 1]) {
+				continue;
+			}
+			if (!store.contains(requested[i])) {
+				// 工程地址上取回的日志只有本工程的版本，不用再过滤
+				ISVNLogMessage logMessage = (ISVNLogMessage) fetched.get(Long.valueOf(requested[i]));
+				if (logMessage != null) {
+					result.add(logMessage);
+				}
+				continue;
+			}
+			ISVNLogMessage logMessage = store.get(requested[i]);
+			if (logMessage != null && touches(logMessage, urlPath)) {
+				result.add(logMessage);
+			}
+		}
+		return (ISVNLogMessage[]) result.toArray(new ISVNLogMessage[result.size()]);
+	}
+
+	private static int[] getMissing(LogStore store, int[] revisions) {
+		int[] missing = new int[revisions.length];
+		int count = 0;
+		for (int i = 0; i < revisions.length; i++) {
+			if (!store.contains(revisions[i])) {
+				missing[count++] = revisions[i];
+			}
+		}
+		int[] result = new int[count];
+		System.arraycopy(missing, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * @discription: 工程地址在版本库根下的路径（与 svn log 的路径相同），不以 / 结尾；工程地址不在 root 下时返回空串。
+	 */
+	private String getUrlPath(String root) {
+		String urlPath = getUrl().toString().startsWith(root) ? getUrl().toString().substring(root.length()) : "";
+		while (urlPath.endsWith(FilePath.separator)) {
+			urlPath = urlPath.substring(0, urlPath.length() - 1);
+		}
+		return urlPath;
+	}
+
+	private void fetchIntoStore(ISVNClientAdapter client, SVNUrl logUrl, int[] revisions, final LogStore store,
+			boolean strict) throws IOException, SVNClientException {
+		for (Iterator iter = RevisionRange.collapse(revisions, LOG_RANGE_GAP).iterator(); iter.hasNext();) {
+			RevisionRange range = (RevisionRange) iter.next();
+			final IOException[] failure = new IOException[1];
+			try {
+				// 每读完一条就存入日志库，版本库根上很长的区间也不会全部留在内存里
+				client.getLogMessages(logUrl, new SVNRevision.Number(range.getBegin()),
+						new SVNRevision.Number(range.getEnd()), true, new ISVNLogMessageCallback() {
+							public void singleMessage(ISVNLogMessage logMessage) {
+								if (failure[0] != null) {
+									return;
+								}
+								try {
+									store.put(logMessage);
+								} catch (IOException e) {
+									failure[0] = e;
+								}
+							}
+						});
+			} catch (SVNClientException e) {
+				// 已经存入的版本是完整的，中断的区间下次只取库里没有的版本
+				if (strict) {
+					throw e;
+				}
+				IOException failed = new IOException("log failed at " + logUrl + " for revisions " + range);
+				failed.initCause(e);
+				throw failed;
+			}
+			if (failure[0] != null) {
+				throw failure[0];
+			}
+			for (long revision = range.getBegin(); revision <= range.getEnd(); revision++) {
+				if (!store.contains(revision)) {
+					store.putEmpty(revision);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @discription: 日志是否修改了 urlPath 下的文件，urlPath 为空表示日志就是按工程地址取的。
+	 */
+	static boolean touches(ISVNLogMessage logMessage, String urlPath) {
+		ISVNLogMessageChangePath[] changedPaths = logMessage.getChangedPaths();
+		if (changedPaths == null || changedPaths.length == 0) {
+			return false;
+		}
+		if (urlPath.length() == 0) {
+			return true;
+		}
+		for (int i = 0; i < changedPaths.length; i++) {
+			String path = changedPaths[i].getPath();
+			if (path.startsWith(urlPath)
+					&& (path.length() == urlPath.length() || path.charAt(urlPath.length()) == '/')) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -48,6 +48,39 @@ public class SvnDomain {
 		this.localRepository = localRepository;
 	}
 
+	/**
+	 * @discription: 为 true 时 java 以外的资源文件（jsp、xml、js 等）直接从版本库按变更的版本号取，不需要本地工作区。
+	 */
+	public boolean isExportResources() {
+		return exportResources;
+	}
+
+	public void setExportResources(boolean exportResources) {
+		this.exportResources = exportResources;
+	}
+
+	/**
+	 * @discription: 源码目录到输出目录的映射规则，每条为 {源目录, 输出目录}，默认为 {@link PathMapper#WEBAPP_RULES}。
+	 */
+	public String[][] getMappingRules() {
+		return mappingRules;
+	}
+
+	public synchronized void setMappingRules(String[][] mappingRules) {
+		this.mappingRules = mappingRules;
+		this.pathMapper = null;
+	}
+
+	/**
+	 * @discription: 规则只编译一次，多个线程共用。
+	 */
+	public synchronized PathMapper getPathMapper() {
+		if (pathMapper == null) {
+			pathMapper = new PathMapper(mappingRules != null ? mappingRules : PathMapper.WEBAPP_RULES);
+		}
+		return pathMapper;
+	}
+
 	public String getSvnUrl() {
 		return svnUrl;
 	}
@@ -56,7 +89,88 @@ public class SvnDomain {
 		this.svnUrl = svnUrl;
 	}
 
+	/**
+	 * @discription: 区间打包的起点地址，如发布时打的 tag；为 null 时与 svnUrl 相同。
+	 */
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	public void setBaseUrl(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	/**
+	 * @discription: 区间打包的起点版本号，-1 表示起点地址的最新版本。
+	 */
+	public long getBaseRevision() {
+		return baseRevision;
+	}
+
+	public void setBaseRevision(long baseRevision) {
+		this.baseRevision = baseRevision;
+	}
+
+	/**
+	 * @discription: 区间打包的终点版本号，-1 表示工程地址的最新版本。
+	 */
+	public long getTargetRevision() {
+		return targetRevision;
+	}
+
+	public void setTargetRevision(long targetRevision) {
+		this.targetRevision = targetRevision;
+	}
+
+	/**
+	 * @discription: 设置了起点地址或起点版本号时按区间打包：用一次 svn diff --summarize 取起点到终点的净变更，
+	 *               不再按 svnVersions 逐个版本取日志。
+	 */
+	public boolean isRangeMode() {
+		return baseUrl != null || baseRevision >= 0;
+	}
+
+	/**
+	 * @discription: 设置后 svnVersions 由 {@link SVN#selectRevisions} 按路径选出：selectFrom 到 selectTo 之间
+	 *               修改过工程地址下这个路径的版本。路径相对工程地址，空串表示整个工程。
+	 */
+	public String getSelectPath() {
+		return selectPath;
+	}
+
+	public void setSelectPath(String selectPath) {
+		this.selectPath = selectPath;
+	}
+
+	public long getSelectFrom() {
+		return selectFrom;
+	}
+
+	public void setSelectFrom(long selectFrom) {
+		this.selectFrom = selectFrom;
+	}
+
+	/**
+	 * @discription: 按路径选版本的终点版本号，-1 表示工程地址的最新版本。
+	 */
+	public long getSelectTo() {
+		return selectTo;
+	}
+
+	public void setSelectTo(long selectTo) {
+		this.selectTo = selectTo;
+	}
+
 	private String password;
 	private String localRepository;
 	private String svnUrl;
+	private boolean exportResources;
+	private String[][] mappingRules;
+	private PathMapper pathMapper;
+	private String baseUrl;
+	private long baseRevision = -1;
+	private long targetRevision = -1;
+	private String selectPath;
+	private long selectFrom;
+	private long selectTo = -1;
 }
@@ -0,0 +1,274 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+
+/**
+ * @discription: 常驻的打包进程。按固定间隔检查每个工程的最新版本，只取上次处理之后的日志，把新的变更增量加入打包目录；
+ *               设置了压缩包目录时，每次有变更就写一个新的压缩包。每个工程处理到的版本号保存在状态文件中，重启后从该版本继续。
+ *               轮询和同步用的 svn 客户端每次调用时从客户端池借用，调用结束就归还，在下一轮复用。
+ */
+public class SyncDaemon {
+
+	public static final long DEFAULT_INTERVAL_MILLIS = 60 * 1000L;
+
+	private final SvnDomain[] domains;
+	private final File stateFile;
+	private final long intervalMillis;
+	private final Properties state = new Properties();
+	private final Map pollers = new LinkedHashMap();
+	private final RunLog log = RunLog.get();
+	/** 资源文件下载线程池，各轮共用，stop 时关闭 */
+	private ExecutorService exportExecutor;
+	private ScheduledExecutorService scheduler;
+	private File archiveDir;
+	private String archiveExtension = ".zip";
+	private int copyWorkers = CopyPipeline.DEFAULT_WORKERS;
+
+	public SyncDaemon(SvnDomain[] domains, File stateFile) {
+		this(domains, stateFile, DEFAULT_INTERVAL_MILLIS);
+	}
+
+	public SyncDaemon(SvnDomain[] domains, File stateFile, long intervalMillis) {
+		this.domains = domains;
+		this.stateFile = stateFile;
+		this.intervalMillis = intervalMillis;
+		loadState();
+		for (int i = 0; i < domains.length; i++) {
+			pollers.put(domains[i], new SVN(domains[i]));
+		}
+	}
+
+	/**
+	 * @param extension .zip、.jar 或 .tar.gz
+	 */
+	public void setArchive(File archiveDir, String extension) {
+		this.archiveDir = archiveDir;
+		this.archiveExtension = extension;
+	}
+
+	public void setCopyWorkers(int copyWorkers) {
+		this.copyWorkers = copyWorkers;
+	}
+
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					poll();
+				} catch (RuntimeException e) {
+					// 异常不能抛出，否则之后的轮询不再执行
+					log.error("poll-failed", "error", e);
+				}
+			}
+		}, 0, intervalMillis, TimeUnit.MILLISECONDS);
+		log.info("daemon-started", "domains", domains.length, "intervalMillis", intervalMillis, "state", stateFile);
+	}
+
+	public synchronized void stop() {
+		if (scheduler == null) {
+			return;
+		}
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		scheduler = null;
+		if (exportExecutor != null) {
+			exportExecutor.shutdown();
+			exportExecutor = null;
+		}
+		for (Iterator iter = pollers.values().iterator(); iter.hasNext();) {
+			((SVN) iter.next()).close();
+		}
+		log.info("daemon-stopped");
+		log.flush();
+	}
+
+	/**
+	 * @discription: 检查一轮。先取所有工程的新日志，有变更时再统一打包，打包完成后才保存处理到的版本号。
+	 *               有文件复制失败或找不到的工程不保存版本号，下一轮重新打包这些版本。
+	 */
+	public void poll() {
+		Map changed = new LinkedHashMap();
+		Map heads = new LinkedHashMap();
+		for (int i = 0; i < domains.length; i++) {
+			SvnDomain domain = domains[i];
+			SVN svn = (SVN) pollers.get(domain);
+			try {
+				long head = svn.getLastChangedRevision();
+				long last = getLastRevision(domain);
+				if (last < 0) {
+					// 第一次运行，从当前版本开始，之前的提交不打包
+					setLastRevision(domain, head);
+					log.info("baseline", "url", domain.getSvnUrl(), "revision", head);
+					continue;
+				}
+				if (head <= last) {
+					continue;
+				}
+				ISVNLogMessage[] logMessages = svn.getLogMessages(new SVNRevision.Number(last + 1),
+						new SVNRevision.Number(head));
+				if (logMessages == null) {
+					throw new SVNClientException("log failed for revisions " + (last + 1) + "-" + head);
+				}
+				log.info("changes", "url", domain.getSvnUrl(), "from", last + 1, "to", head, "revisions",
+						logMessages.length);
+				changed.put(domain, logMessages);
+				heads.put(domain, Long.valueOf(head));
+			} catch (SVNClientException e) {
+				log.error("poll-failed", "url", domain.getSvnUrl(), "error", e);
+			}
+		}
+		if (changed.isEmpty()) {
+			saveState();
+			return;
+		}
+
+		PackageSink sink = archiveDir != null ? (PackageSink) ArchiveSink.create(new File(archiveDir, "package-"
+				+ new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + archiveExtension), copyWorkers)
+				: new CopyPipeline(copyWorkers, CopyEngine.INCREMENTAL);
+		SyncMetrics metrics = new SyncMetrics();
+		metrics.setCopyReport(sink.getReport());
+		// 工作区每轮都可能重新编译，输出目录的索引不跨轮使用
+		OutputIndex outputIndex = new OutputIndex();
+		Set incomplete = new HashSet();
+		long attributed;
+		try {
+			for (Iterator iter = changed.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				SvnDomain domain = (SvnDomain) entry.getKey();
+				long before = getProblems(sink.getReport());
+				Synchronizer synchronizer = new Synchronizer(domain, outputIndex, sink);
+				synchronizer.setLogMessages((ISVNLogMessage[]) entry.getValue());
+				synchronizer.setMetrics(metrics);
+				synchronizer.setExportExecutor(getExportExecutor());
+				synchronizer.run();
+				if (!awaitCopies(sink) || getProblems(sink.getReport()) > before) {
+					incomplete.add(domain);
+				}
+			}
+			attributed = getProblems(sink.getReport());
+		} finally {
+			sink.shutdown();
+		}
+		// 压缩包的条目在 shutdown 时才写入，这时的失败分不清属于哪个工程，所有工程都不保存
+		boolean unattributed = getProblems(sink.getReport()) > attributed;
+		for (Iterator iter = heads.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			SvnDomain domain = (SvnDomain) entry.getKey();
+			if (unattributed || incomplete.contains(domain)) {
+				log.warn("revision-kept", "url", domain.getSvnUrl(), "revision", getLastRevision(domain));
+				continue;
+			}
+			setLastRevision(domain, ((Long) entry.getValue()).longValue());
+		}
+		saveState();
+		metrics.finish();
+		log.info("packaged", "domains", changed.size(), "report", sink.getReport(), "metrics", metrics.getSummary());
+	}
+
+	private static long getProblems(CopyReport report) {
+		return report.getFailed() + report.getMissing();
+	}
+
+	/**
+	 * @discription: 打包目录时等待本工程提交的复制做完，复制失败才能算到这个工程上；被中断返回 false。
+	 */
+	private static boolean awaitCopies(PackageSink sink) {
+		if (!(sink instanceof CopyPipeline)) {
+			return true;
+		}
+		try {
+			((CopyPipeline) sink).await();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private synchronized ExecutorService getExportExecutor() {
+		if (exportExecutor == null) {
+			exportExecutor = RepositoryExporter.newExecutor(RepositoryExporter.DEFAULT_WORKERS);
+		}
+		return exportExecutor;
+	}
+
+	public synchronized long getLastRevision(SvnDomain domain) {
+		String revision = state.getProperty(domain.getSvnUrl());
+		return revision == null ? -1 : Long.parseLong(revision);
+	}
+
+	private synchronized void setLastRevision(SvnDomain domain, long revision) {
+		state.setProperty(domain.getSvnUrl(), String.valueOf(revision));
+	}
+
+	private synchronized void loadState() {
+		if (!stateFile.exists()) {
+			return;
+		}
+		InputStream in = null;
+		try {
+			in = new FileInputStream(stateFile);
+			state.load(in);
+		} catch (IOException e) {
+			log.error("state-load-failed", "file", stateFile, "error", e);
+		} finally {
+			CopyEngine.close(in);
+		}
+	}
+
+	/**
+	 * @discription: 先写临时文件再替换，写到一半退出不会损坏原来的状态文件。
+	 */
+	private synchronized void saveState() {
+		File parent = stateFile.getAbsoluteFile().getParentFile();
+		if (!FileCopy.createPath(parent.getPath())) {
+			log.error("state-save-failed", "file", stateFile, "error", "系统不能创建指定路径：" + parent);
+			return;
+		}
+		File temp = new File(parent, stateFile.getName() + ".tmp");
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(temp);
+			state.store(out, "last processed revision per svn url");
+			out.close();
+			out = null;
+			// Windows 下目标存在时 renameTo 失败
+			if (!temp.renameTo(stateFile) && !(stateFile.delete() && temp.renameTo(stateFile))) {
+				throw new IOException("cannot replace " + stateFile);
+			}
+		} catch (IOException e) {
+			log.error("state-save-failed", "file", stateFile, "error", e);
+		} finally {
+			CopyEngine.close(out);
+		}
+	}
+}
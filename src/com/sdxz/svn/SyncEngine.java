@@ -0,0 +1,257 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+
+/**
+ * @discription: 多个 SvnDomain 并行同步。每个工程一个 {@link Synchronizer} 实例，在线程池中执行，
+ *               同一台 svn 服务器上同时执行的工程数不超过 maxPerHost。
+ */
+public class SyncEngine {
+
+	public static final int DEFAULT_THREADS = 4;
+	public static final int DEFAULT_MAX_PER_HOST = 2;
+
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+	private final int maxPerHost;
+	private final Map hostPermits = new HashMap();
+	private int copyWorkers = CopyPipeline.DEFAULT_WORKERS;
+	private CopyEngine copyEngine = CopyEngine.DEFAULT;
+	private File archive;
+	private LogCache logCache;
+	private boolean shareRepositoryLog = true;
+	private File metricsFile;
+	private boolean resume = true;
+
+	public SyncEngine() {
+		this(DEFAULT_THREADS, DEFAULT_MAX_PER_HOST);
+	}
+
+	public SyncEngine(int threads, int maxPerHost) {
+		this(Executors.newFixedThreadPool(threads), maxPerHost, true);
+	}
+
+	/**
+	 * @discription: 使用调用方提供的线程池，线程池由调用方关闭。
+	 */
+	public SyncEngine(ExecutorService executor, int maxPerHost) {
+		this(executor, maxPerHost, false);
+	}
+
+	private SyncEngine(ExecutorService executor, int maxPerHost, boolean ownExecutor) {
+		if (maxPerHost < 1) {
+			throw new IllegalArgumentException("maxPerHost must be positive: " + maxPerHost);
+		}
+		this.executor = executor;
+		this.maxPerHost = maxPerHost;
+		this.ownExecutor = ownExecutor;
+	}
+
+	public void setCopyWorkers(int copyWorkers) {
+		this.copyWorkers = copyWorkers;
+	}
+
+	public void setCopyEngine(CopyEngine copyEngine) {
+		this.copyEngine = copyEngine;
+	}
+
+	/**
+	 * @discription: 设置后不再写打包目录，所有工程的文件直接写入这个压缩包，按扩展名选择 zip/jar 或 tar.gz。
+	 */
+	public void setArchive(File archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * @discription: 设置后所有工程的日志先从本地日志库取。
+	 */
+	public void setLogCache(LogCache logCache) {
+		this.logCache = logCache;
+	}
+
+	/**
+	 * @discription: 同一版本库下有多个工程时是否只在版本库根上取一次日志再分给各个工程，默认为 true。
+	 */
+	public void setShareRepositoryLog(boolean shareRepositoryLog) {
+		this.shareRepositoryLog = shareRepositoryLog;
+	}
+
+	/**
+	 * @discription: 设置后打包结束时把统计 JSON 写入这个文件，不设置只输出到控制台。
+	 */
+	public void setMetricsFile(File metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+
+	/**
+	 * @discription: 写打包目录时是否使用续传日志，默认为 true。中途失败后再次打包会跳过已经完成的版本和文件，压缩包不续传。
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * @discription: 提交所有工程并等待全部完成。单个工程失败只打印异常，不影响其它工程。
+	 */
+	public void sync(SvnDomain[] domains) {
+		OutputIndex outputIndex = new OutputIndex();
+		PackageSink copyPipeline = archive != null ? (PackageSink) ArchiveSink.create(archive, copyWorkers)
+				: new CopyPipeline(copyWorkers, copyEngine);
+		SyncMetrics metrics = new SyncMetrics();
+		metrics.setCopyReport(copyPipeline.getReport());
+		metrics.register();
+		ResumeJournal journal = openJournal(domains, copyPipeline);
+		// 所有工程共用一个资源文件下载线程池
+		ExecutorService exportExecutor = RepositoryExporter.newExecutor(RepositoryExporter.DEFAULT_WORKERS);
+		int failures = 0;
+		try {
+			selectRevisions(domains, metrics);
+			Map routed = shareRepositoryLog ? DomainRouter.route(domains, logCache, metrics) : new HashMap();
+			List futures = new ArrayList();
+			for (int i = 0; i < domains.length; i++) {
+				Synchronizer synchronizer = new Synchronizer(domains[i], outputIndex, copyPipeline);
+				synchronizer.setLogCache(logCache);
+				synchronizer.setLogMessages((ISVNLogMessage[]) routed.get(domains[i]));
+				synchronizer.setMetrics(metrics);
+				synchronizer.setJournal(journal);
+				synchronizer.setExportExecutor(exportExecutor);
+				futures.add(executor.submit(task(synchronizer)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				Future future = (Future) futures.get(i);
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					failures++;
+					RunLog.get().error("sync-failed", "url", domains[i].getSvnUrl(), "error", e.getCause());
+				} catch (InterruptedException e) {
+					failures++;
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		} finally {
+			exportExecutor.shutdown();
+			copyPipeline.shutdown();
+			if (journal != null) {
+				if (failures == 0 && copyPipeline.getReport().getFailed() == 0) {
+					journal.complete();
+				} else {
+					journal.close();
+					RunLog.get().warn("journal-kept", "file", journal.getFile());
+				}
+			}
+			metrics.finish();
+			RunLog.get().info("packaged", "report", copyPipeline.getReport(), "clients", ClientPool.getDefault(),
+					"metrics", metrics.getSummary());
+			RunLog.get().flush();
+			if (metricsFile != null) {
+				metrics.writeJson(metricsFile);
+			}
+			if (ownExecutor) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * @discription: 设置了 selectPath 的工程从路径索引选出 svnVersions，选不出时这个工程不打包任何版本。
+	 */
+	private void selectRevisions(SvnDomain[] domains, SyncMetrics metrics) {
+		for (int i = 0; i < domains.length; i++) {
+			SvnDomain domain = domains[i];
+			if (domain.getSelectPath() == null || domain.isRangeMode()) {
+				continue;
+			}
+			SVN svn = new SVN(domain);
+			svn.setLogCache(logCache);
+			svn.setMetrics(metrics);
+			try {
+				int[] revisions = svn.selectRevisions(domain.getSelectPath(), domain.getSelectFrom(), domain
+						.getSelectTo());
+				domain.setSvnVersions(revisions);
+				RunLog.get().info("revisions-selected", "url", domain.getSvnUrl(), "path", domain.getSelectPath(),
+						"revisions", revisions.length);
+			} catch (SVNClientException e) {
+				domain.setSvnVersions(new int[0]);
+				RunLog.get().error("select-failed", "url", domain.getSvnUrl(), "path", domain.getSelectPath(), "error",
+						e);
+			} finally {
+				svn.close();
+			}
+		}
+	}
+
+	/**
+	 * @discription: 续传日志放在第一个工程的打包目录旁边，打不开时不续传。
+	 */
+	private ResumeJournal openJournal(SvnDomain[] domains, PackageSink copyPipeline) {
+		if (!resume || !(copyPipeline instanceof CopyPipeline) || domains.length == 0) {
+			return null;
+		}
+		try {
+			ResumeJournal journal = new ResumeJournal(ResumeJournal.forDestination(domains[0].getLocalDestLocation()));
+			if (journal.size() > 0) {
+				RunLog.get().info("resume", "file", journal.getFile(), "entries", journal.size());
+			}
+			((CopyPipeline) copyPipeline).setJournal(journal);
+			return journal;
+		} catch (IOException e) {
+			RunLog.get().error("journal-failed", "error", e);
+			return null;
+		}
+	}
+
+	private Runnable task(final Synchronizer synchronizer) {
+		final Semaphore permits = getPermits(synchronizer.getDomain().getSvnUrl());
+		return new Runnable() {
+			public void run() {
+				try {
+					permits.acquire();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				try {
+					synchronizer.run();
+				} finally {
+					permits.release();
+				}
+			}
+		};
+	}
+
+	private synchronized Semaphore getPermits(String svnUrl) {
+		String host = getHost(svnUrl);
+		Semaphore permits = (Semaphore) hostPermits.get(host);
+		if (permits == null) {
+			permits = new Semaphore(maxPerHost);
+			hostPermits.put(host, permits);
+		}
+		return permits;
+	}
+
+	static String getHost(String svnUrl) {
+		try {
+			SVNUrl url = new SVNUrl(svnUrl);
+			return url.getHost() + ":" + url.getPort();
+		} catch (MalformedURLException e) {
+			return String.valueOf(svnUrl);
+		}
+	}
+}
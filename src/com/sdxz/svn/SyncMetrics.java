@@ -0,0 +1,297 @@
+package com.sdxz.svn;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.tigris.subversion.svnclientadapter.ISVNClientAdapter;
+
+/**
+ * @discription: 一次打包的分阶段耗时和吞吐量：取日志、过滤路径、目录映射、查找输出文件、复制，
+ *               以及每个 svn 客户端方法的耗时分布。多个 Synchronizer 共用一个实例，阶段耗时是各线程耗时之和。
+ *               结束时输出 JSON，进行中可以通过 JMX（com.sdxz.svn:type=SyncMetrics,id=N）查看，
+ *               N 从 1 开始，每次打包注册时加一，同一进程里的多次打包互不覆盖。
+ */
+public class SyncMetrics implements SyncMetricsMBean {
+
+	public static final String LOG = "log";
+	public static final String FILTER = "filter";
+	public static final String MAPPING = "mapping";
+	public static final String LOOKUP = "lookup";
+	public static final String COPY = "copy";
+
+	private static final String[] PHASES = new String[] { LOG, FILTER, MAPPING, LOOKUP, COPY };
+	private static final AtomicInteger ids = new AtomicInteger();
+
+	private final Map phases = new ConcurrentHashMap();
+	private final Map calls = new ConcurrentHashMap();
+	private final long started = System.currentTimeMillis();
+	private volatile long finished;
+	private volatile CopyReport copyReport;
+	private ObjectName objectName;
+
+	public SyncMetrics() {
+		for (int i = 0; i < PHASES.length; i++) {
+			phases.put(PHASES[i], new Phase());
+		}
+	}
+
+	/**
+	 * @discription: 复制阶段的数据从复制报告中取，复制在后台线程中进行。
+	 */
+	public void setCopyReport(CopyReport copyReport) {
+		this.copyReport = copyReport;
+	}
+
+	public void add(String phase, long nanos, long files) {
+		add(phase, nanos, files, 0);
+	}
+
+	public void add(String phase, long nanos, long files, long bytes) {
+		Phase p = (Phase) phases.get(phase);
+		if (p == null) {
+			throw new IllegalArgumentException("unknown phase: " + phase);
+		}
+		p.nanos.addAndGet(nanos);
+		p.files.addAndGet(files);
+		p.bytes.addAndGet(bytes);
+	}
+
+	public void addCall(String method, long nanos, boolean success) {
+		LatencyHistogram histogram = (LatencyHistogram) calls.get(method);
+		if (histogram == null) {
+			synchronized (calls) {
+				histogram = (LatencyHistogram) calls.get(method);
+				if (histogram == null) {
+					histogram = new LatencyHistogram();
+					calls.put(method, histogram);
+				}
+			}
+		}
+		histogram.record(nanos, success);
+	}
+
+	/**
+	 * @discription: 包装客户端，记录每次调用的耗时。返回的客户端只用于调用，归还客户端池时仍使用原来的客户端。
+	 */
+	public ISVNClientAdapter trace(final ISVNClientAdapter client) {
+		return (ISVNClientAdapter) Proxy.newProxyInstance(ISVNClientAdapter.class.getClassLoader(),
+				new Class[] { ISVNClientAdapter.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getDeclaringClass() == Object.class) {
+							return method.invoke(client, args);
+						}
+						long start = System.nanoTime();
+						boolean success = false;
+						try {
+							Object result = method.invoke(client, args);
+							success = true;
+							return result;
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						} finally {
+							addCall(method.getName(), System.nanoTime() - start, success);
+						}
+					}
+				});
+	}
+
+	/**
+	 * @discription: 以 com.sdxz.svn:type=SyncMetrics,id=N 注册到平台 MBeanServer，注册失败只打印异常。
+	 */
+	public synchronized void register() {
+		if (objectName != null) {
+			return;
+		}
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("com.sdxz.svn:type=SyncMetrics,id=" + ids.incrementAndGet());
+			server.registerMBean(this, objectName);
+		} catch (JMException e) {
+			objectName = null;
+			RunLog.get().warn("metrics-register-failed", "error", e);
+		}
+	}
+
+	/**
+	 * @discription: 打包结束，停止计时并从 MBeanServer 注销。
+	 */
+	public synchronized void finish() {
+		finished = System.currentTimeMillis();
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			RunLog.get().warn("metrics-unregister-failed", "name", objectName, "error", e);
+		}
+		objectName = null;
+	}
+
+	public void writeJson(File file) {
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(file);
+			out.write(getSummary().getBytes("UTF-8"));
+		} catch (IOException e) {
+			RunLog.get().error("metrics-write-failed", "file", file, "error", e);
+		} finally {
+			CopyEngine.close(out);
+		}
+	}
+
+	public long getElapsedMillis() {
+		return (finished > 0 ? finished : System.currentTimeMillis()) - started;
+	}
+
+	public long getLogMillis() {
+		return millis(((Phase) phases.get(LOG)).nanos.get());
+	}
+
+	public long getFilterMillis() {
+		return millis(((Phase) phases.get(FILTER)).nanos.get());
+	}
+
+	public long getMappingMillis() {
+		return millis(((Phase) phases.get(MAPPING)).nanos.get());
+	}
+
+	public long getLookupMillis() {
+		return millis(((Phase) phases.get(LOOKUP)).nanos.get());
+	}
+
+	public long getCopyMillis() {
+		return millis(getPhaseNanos(COPY));
+	}
+
+	public long getLogMessages() {
+		return ((Phase) phases.get(LOG)).files.get();
+	}
+
+	public long getFilesMapped() {
+		return ((Phase) phases.get(MAPPING)).files.get();
+	}
+
+	public long getFilesCopied() {
+		return getPhaseFiles(COPY);
+	}
+
+	public long getBytesCopied() {
+		return getPhaseBytes(COPY);
+	}
+
+	public long getClientCalls() {
+		long total = 0;
+		for (Iterator iter = calls.values().iterator(); iter.hasNext();) {
+			total += ((LatencyHistogram) iter.next()).getCount();
+		}
+		return total;
+	}
+
+	private long getPhaseNanos(String phase) {
+		CopyReport report = copyReport;
+		if (COPY.equals(phase) && report != null) {
+			return ((Phase) phases.get(phase)).nanos.get() + report.getNanos();
+		}
+		return ((Phase) phases.get(phase)).nanos.get();
+	}
+
+	private long getPhaseFiles(String phase) {
+		CopyReport report = copyReport;
+		if (COPY.equals(phase) && report != null) {
+			return ((Phase) phases.get(phase)).files.get() + report.getCopied();
+		}
+		return ((Phase) phases.get(phase)).files.get();
+	}
+
+	private long getPhaseBytes(String phase) {
+		CopyReport report = copyReport;
+		if (COPY.equals(phase) && report != null) {
+			return ((Phase) phases.get(phase)).bytes.get() + report.getBytes();
+		}
+		return ((Phase) phases.get(phase)).bytes.get();
+	}
+
+	public String getSummary() {
+		StringBuffer json = new StringBuffer(512);
+		json.append("{\"elapsedMillis\":").append(getElapsedMillis());
+		json.append(",\"phases\":{");
+		for (int i = 0; i < PHASES.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			long nanos = getPhaseNanos(PHASES[i]);
+			long files = getPhaseFiles(PHASES[i]);
+			long bytes = getPhaseBytes(PHASES[i]);
+			json.append('"').append(PHASES[i]).append("\":{\"millis\":").append(millis(nanos));
+			json.append(",\"files\":").append(files).append(",\"bytes\":").append(bytes);
+			json.append(",\"filesPerSecond\":").append(nanos == 0 ? 0 : files * 1000000000L / nanos);
+			json.append(",\"bytesPerSecond\":").append(nanos == 0 ? 0 : (long) (bytes * 1e9 / nanos));
+			json.append('}');
+		}
+		json.append('}');
+		CopyReport report = copyReport;
+		if (report != null) {
+			json.append(",\"copy\":{\"copied\":").append(report.getCopied());
+			json.append(",\"unchanged\":").append(report.getSkipped());
+			json.append(",\"failed\":").append(report.getFailed());
+			json.append(",\"missing\":").append(report.getMissing());
+			json.append(",\"resumed\":").append(report.getResumed()).append('}');
+		}
+		json.append(",\"clientCalls\":{");
+		// 按方法名排序，多次运行的结果便于比较
+		Map sorted = new TreeMap(calls);
+		for (Iterator iter = sorted.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			LatencyHistogram histogram = (LatencyHistogram) entry.getValue();
+			json.append('"').append(entry.getKey()).append("\":{\"count\":").append(histogram.getCount());
+			json.append(",\"failed\":").append(histogram.getFailed());
+			json.append(",\"totalMillis\":").append(millis(histogram.getTotalNanos()));
+			json.append(",\"p50Millis\":").append(fraction(histogram.getPercentileNanos(0.5)));
+			json.append(",\"p90Millis\":").append(fraction(histogram.getPercentileNanos(0.9)));
+			json.append(",\"p99Millis\":").append(fraction(histogram.getPercentileNanos(0.99)));
+			json.append(",\"maxMillis\":").append(fraction(histogram.getMaxNanos())).append('}');
+			if (iter.hasNext()) {
+				json.append(',');
+			}
+		}
+		json.append("}}");
+		return json.toString();
+	}
+
+	private static long millis(long nanos) {
+		return nanos / 1000000L;
+	}
+
+	/**
+	 * @return 保留三位小数的毫秒数
+	 */
+	private static String fraction(long nanos) {
+		long micros = nanos / 1000;
+		String decimals = String.valueOf(1000 + micros % 1000).substring(1);
+		return micros / 1000 + "." + decimals;
+	}
+
+	private static class Phase {
+		final AtomicLong nanos = new AtomicLong();
+		final AtomicLong files = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+	}
+}
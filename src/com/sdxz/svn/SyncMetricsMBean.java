@@ -0,0 +1,34 @@
+package com.sdxz.svn;
+
+/**
+ * @discription: 通过 JMX 查看正在进行的打包，时间单位为毫秒。
+ */
+public interface SyncMetricsMBean {
+
+	long getElapsedMillis();
+
+	long getLogMillis();
+
+	long getFilterMillis();
+
+	long getMappingMillis();
+
+	long getLookupMillis();
+
+	long getCopyMillis();
+
+	long getLogMessages();
+
+	long getFilesMapped();
+
+	long getFilesCopied();
+
+	long getBytesCopied();
+
+	long getClientCalls();
+
+	/**
+	 * @return 与结束时写出的 JSON 相同
+	 */
+	String getSummary();
+}
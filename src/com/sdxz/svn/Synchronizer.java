@@ -1,89 +1,325 @@
 package com.sdxz.svn;
 
 import java.io.File;
+import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
-import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
-import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
 
-public class Synchronizer {
+/**
+ * @discription: 一个实例负责一个 SvnDomain 的同步，路径和 svn 客户端都放在实例里，多个实例可以并行执行。
+ *               多个工程一起同步请使用 {@link SyncEngine}。
+ */
+public class Synchronizer implements Runnable {
 
-	static String srcPath = "";
-	static String desPath = "";
+	private final SvnDomain domain;
+	private final SVN svn;
+	private final String srcPath;
+	private final String desPath;
+	private final OutputIndex outputIndex;
+	private final PackageSink copyPipeline;
+	private final boolean ownPipeline;
+	private ISVNLogMessage[] logMessages;
+	private SyncMetrics metrics = new SyncMetrics();
+	private final RunLog log = RunLog.get();
+	private ResumeJournal journal;
+	private ExecutorService exportExecutor;
+
+	public Synchronizer(SvnDomain domain) {
+		this(domain, new OutputIndex(), new CopyPipeline(), true);
+	}
+
+	/**
+	 * @discription: outputIndex 和 copyPipeline 可以在多个 Synchronizer 之间共享，copyPipeline 由调用方关闭。
+	 *               copyPipeline 可以是打包目录，也可以是压缩包。
+	 */
+	public Synchronizer(SvnDomain domain, OutputIndex outputIndex, PackageSink copyPipeline) {
+		this(domain, outputIndex, copyPipeline, false);
+	}
+
+	private Synchronizer(SvnDomain domain, OutputIndex outputIndex, PackageSink copyPipeline, boolean ownPipeline) {
+		this.domain = domain;
+		this.outputIndex = outputIndex;
+		this.copyPipeline = copyPipeline;
+		this.ownPipeline = ownPipeline;
+		this.svn = new SVN(domain);
+		svn.setMetrics(metrics);
+		if (ownPipeline) {
+			metrics.setCopyReport(copyPipeline.getReport());
+		}
+		this.srcPath = domain.getLocalRepository();
+		this.desPath = domain.getLocalDestLocation();
+	}
 
 	public static void syncFile(SvnDomain[] domains) {
-		for (SvnDomain domain : domains) {
-			SVN.SVNPATH = domain.getSvnUrl();
-			SVN.USERNAME = domain.getUsername();
-			SVN.PASSWORD = domain.getPassword();
-			desPath = domain.getLocalDestLocation();
-			srcPath = domain.getLocalRepository();
-			int[] versions = domain.getSvnVersions();
-			for (int i = 0; i < versions.length; i++) {
-				int n = versions[i];
-				start(n);
+		new SyncEngine().sync(domains);
+	}
+
+	public SvnDomain getDomain() {
+		return domain;
+	}
+
+	public void setLogCache(LogCache logCache) {
+		svn.setLogCache(logCache);
+	}
+
+	/**
+	 * @discription: 设置已经取好的日志（如 {@link DomainRouter} 在版本库根上取回再分发的日志），设置后不再自己取日志。
+	 */
+	public void setLogMessages(ISVNLogMessage[] logMessages) {
+		this.logMessages = logMessages;
+	}
+
+	/**
+	 * @discription: 多个 Synchronizer 共用一个统计时由调用方设置，共用的统计由调用方结束和输出。
+	 */
+	public void setMetrics(SyncMetrics metrics) {
+		this.metrics = metrics;
+		svn.setMetrics(metrics);
+	}
+
+	/**
+	 * @discription: 设置后跳过续传日志中已经完成的版本；取日志失败时抛出异常而不是跳过，全部复制完成后把版本记入日志。
+	 */
+	public void setJournal(ResumeJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * @discription: 导出资源文件用的共用线程池（{@link RepositoryExporter#newExecutor(int)}），由调用方关闭；
+	 *               不设置时每次导出自己建一个。
+	 */
+	public void setExportExecutor(ExecutorService exportExecutor) {
+		this.exportExecutor = exportExecutor;
+	}
+
+	public void run() {
+		try {
+			if (domain.isRangeMode()) {
+				start(new ISVNLogMessage[] { fetchChangedPaths() });
+				return;
+			}
+			long failed = copyPipeline.getReport().getFailed();
+			ISVNLogMessage[] messages = logMessages;
+			int[] revisions = null;
+			// 外部给了日志（如常驻进程轮询到的新日志）又没有续传日志时直接打包，不看配置的版本号
+			if (messages == null || journal != null) {
+				// 版本号为单个或多个
+				revisions = getPendingRevisions();
+				if (revisions.length == 0) {
+					log.info("resumed", "url", domain.getSvnUrl(), "pending", 0);
+					return;
+				}
+				if (messages == null) {
+					long begin = System.nanoTime();
+					messages = journal != null ? fetchLogMessages(revisions) : svn.getLogMessages(revisions);
+					metrics.add(SyncMetrics.LOG, System.nanoTime() - begin, messages.length);
+				} else {
+					messages = select(messages, revisions);
+				}
+			}
+			start(messages);
+			if (journal != null) {
+				complete(revisions, failed);
+			}
+			// 版本号范围 如：10000--20000
+			/*
+			 * start(svn.getLogMessages(new SVNRevision.Number(400), new SVNRevision.Number(450)));
+			 */
+		} finally {
+			svn.close();
+			if (ownPipeline) {
+				copyPipeline.shutdown();
+				metrics.finish();
+				log.info("packaged", "report", copyPipeline.getReport(), "metrics", metrics.getSummary());
+				log.flush();
 			}
 		}
 	}
 
-	public static void run() {
-		// 版本号为单个或多个
-		int[] versions = new int[] { 219166 };
-		for (int i = 0; i < versions.length; i++) {
-			int n = versions[i];
-			start(n);
+	/**
+	 * @discription: 去掉续传日志中已经完成的版本。
+	 */
+	private int[] getPendingRevisions() {
+		int[] revisions = domain.getSvnVersions() == null ? new int[0] : domain.getSvnVersions();
+		if (journal == null) {
+			return revisions;
+		}
+		int[] pending = new int[revisions.length];
+		int count = 0;
+		for (int i = 0; i < revisions.length; i++) {
+			if (!journal.isRevisionDone(domain.getSvnUrl(), revisions[i])) {
+				pending[count++] = revisions[i];
+			}
+		}
+		if (count < revisions.length) {
+			log.info("resumed", "url", domain.getSvnUrl(), "done", revisions.length - count, "pending", count);
+		}
+		int[] result = new int[count];
+		System.arraycopy(pending, 0, result, 0, count);
+		return result;
+	}
+
+	private ISVNLogMessage[] fetchLogMessages(int[] revisions) {
+		try {
+			return svn.fetchLogMessages(revisions);
+		} catch (SVNClientException e) {
+			// 不能跳过取不到的版本，否则续传日志会把它们记为已完成
+			throw new RuntimeException("取日志失败：" + domain.getSvnUrl(), e);
 		}
-		// 版本号范围 如：10000--20000
-		/*
-		 * for (int i=400; i<=450; i++){ start(i); }
-		 */
 	}
 
-	private static void start(int number) {
-		SVNRevision beginNumber = new SVNRevision.Number(number);
-		SVNRevision endNumber = new SVNRevision.Number(number);
-		ISVNLogMessage[] logMessages = SVN.getLogMessages(beginNumber, endNumber);
+	/**
+	 * @discription: 区间打包，一次请求取起点到终点之间的净变更，不需要列出中间的每个版本。取不到时抛出异常。
+	 */
+	private ISVNLogMessage fetchChangedPaths() {
+		long begin = System.nanoTime();
+		try {
+			SVNUrl baseUrl = domain.getBaseUrl() == null ? null : new SVNUrl(domain.getBaseUrl());
+			ISVNLogMessage changes = svn.getChangedPaths(baseUrl, domain.getBaseRevision(),
+					domain.getTargetRevision());
+			metrics.add(SyncMetrics.LOG, System.nanoTime() - begin, 1);
+			log.info("range", "url", domain.getSvnUrl(), "base", domain.getBaseUrl() != null ? domain.getBaseUrl()
+					: domain.getSvnUrl(), "baseRevision", domain.getBaseRevision(), "target", changes.getRevision(),
+					"paths", changes.getChangedPaths().length);
+			return changes;
+		} catch (MalformedURLException e) {
+			throw new RuntimeException("起点地址错误：" + domain.getBaseUrl(), e);
+		} catch (SVNClientException e) {
+			throw new RuntimeException("取区间变更失败：" + domain.getSvnUrl(), e);
+		}
+	}
 
+	private static ISVNLogMessage[] select(ISVNLogMessage[] logMessages, int[] revisions) {
+		int[] sorted = revisions.clone();
+		Arrays.sort(sorted);
+		List selected = new ArrayList();
+		for (int i = 0; i < logMessages.length; i++) {
+			long revision = logMessages[i].getRevision().getNumber();
+			if (revision <= Integer.MAX_VALUE && Arrays.binarySearch(sorted, (int) revision) >= 0) {
+				selected.add(logMessages[i]);
+			}
+		}
+		return (ISVNLogMessage[]) selected.toArray(new ISVNLogMessage[selected.size()]);
+	}
+
+	/**
+	 * @discription: 等本工程提交的复制全部完成，期间没有复制失败才把版本记入续传日志。
+	 */
+	private void complete(int[] revisions, long failed) {
+		if (copyPipeline instanceof CopyPipeline) {
+			try {
+				((CopyPipeline) copyPipeline).await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		if (copyPipeline.getReport().getFailed() == failed) {
+			journal.revisionsDone(domain.getSvnUrl(), revisions);
+		}
+	}
+
+	private void start(ISVNLogMessage[] logMessages) {
+		ChangeSet changeSet = new ChangeSet();
 		for (int i = 0; i < logMessages.length; i++) {
 			ISVNLogMessage logMessage = logMessages[i];
-			ISVNLogMessageChangePath[] changedPaths = logMessage.getChangedPaths();
-			System.out.println(logMessage.getRevision() + "\t" + logMessage.getAuthor() + "\t");
-			for (int j = 0; j < changedPaths.length; j++) {
-				String path = changedPaths[j].getPath();
-				System.out.println("\t path： \t" + path);
-
-				if (changedPaths[j].getAction() == 'D') {
-					continue;
-				}
-				if (!isSameProject(path)) {
-					continue;
-				}
-				FilePath filePath = new FilePath();
-				filePath.setBase(srcPath);
-
-				String npath = path.split("trunk")[1];
-				filePath.setContext(npath.substring(0, npath.lastIndexOf(FilePath.separator)));
-				filePath.setFileName(path.substring(path.lastIndexOf(FilePath.separator) + 1));
-				// System.out.print("\t\r\n filePath:\r\n" +filePath+"\r\n");
-				replaceSrcWebRoot(filePath);
-				if (filePath.getExtension() != null && filePath.getExtension().equals("java")) {
-					filePath.setExtension("class");
-					// System.out.println("\t" + filePath.getContextPath());
-					copy(filePath, desPath);
-					for (Iterator iter = getJavaRelativeFiles(filePath).iterator(); iter.hasNext();) {
-						FilePath file = (FilePath) iter.next();
-						// System.out.println("\t\t" + file.getContextPath());
-						copy(file, desPath);
-					}
-				} else {
-					// System.out.println("\t" + filePath.getContextPath());
-					copy(filePath, desPath);
+			log.info("revision", "revision", logMessage.getRevision(), "author", logMessage.getAuthor(), "url",
+					domain.getSvnUrl());
+		}
+		long begin = System.nanoTime();
+		changeSet.addAll(logMessages);
+		long filterNanos = System.nanoTime() - begin;
+		long mappingNanos = 0;
+		long lookupNanos = 0;
+		int kept = 0;
+
+		// 多个变更映射到同一个输出文件时只复制一次
+		Map outputs = new LinkedHashMap();
+		Map exports = new LinkedHashMap();
+		for (Iterator iter = changeSet.getChanges().iterator(); iter.hasNext();) {
+			ChangeSet.Change change = (ChangeSet.Change) iter.next();
+			String path = change.getPath();
+			log.debug("path", "action", change.getAction(), "path", path);
+
+			begin = System.nanoTime();
+			boolean wanted = change.getAction() != 'D' && isSameProject(path);
+			long mapped = System.nanoTime();
+			filterNanos += mapped - begin;
+			if (!wanted) {
+				continue;
+			}
+			kept++;
+			FilePath filePath = new FilePath();
+			filePath.setBase(srcPath);
+
+			String npath = path.split("trunk")[1];
+			filePath.setContext(npath.substring(0, npath.lastIndexOf(FilePath.separator)));
+			filePath.setFileName(path.substring(path.lastIndexOf(FilePath.separator) + 1));
+			// System.out.print("\t\r\n filePath:\r\n" +filePath+"\r\n");
+			replaceSrcWebRoot(filePath);
+			if (filePath.getExtension() != null && filePath.getExtension().equals("java")) {
+				filePath.setExtension("class");
+				addOutput(outputs, filePath);
+				long lookup = System.nanoTime();
+				mappingNanos += lookup - mapped;
+				for (Iterator files = getJavaRelativeFiles(filePath).iterator(); files.hasNext();) {
+					addOutput(outputs, (FilePath) files.next());
 				}
+				lookupNanos += System.nanoTime() - lookup;
+			} else if (domain.isExportResources() && filePath.getExtension() != null) {
+				// 没有扩展名的一般是目录，仍按工作区处理
+				exports.put(filePath.getContext() + FilePath.separator + filePath.getFileName(), change);
+				mappingNanos += System.nanoTime() - mapped;
+			} else {
+				addOutput(outputs, filePath);
+				mappingNanos += System.nanoTime() - mapped;
 			}
 		}
+		metrics.add(SyncMetrics.FILTER, filterNanos, kept);
+		metrics.add(SyncMetrics.MAPPING, mappingNanos, outputs.size() + exports.size());
+		metrics.add(SyncMetrics.LOOKUP, lookupNanos, 0);
+
+		for (Iterator iter = outputs.values().iterator(); iter.hasNext();) {
+			copy((FilePath) iter.next(), desPath);
+		}
+		if (!exports.isEmpty()) {
+			export(exports);
+		}
+	}
+
+	/**
+	 * @discription: 从版本库按最后一次变更的版本号取资源文件，exports 为输出路径到变更的对应。
+	 */
+	private void export(Map exports) {
+		RepositoryExporter exporter = exportExecutor != null ? new RepositoryExporter(domain, copyPipeline,
+				exportExecutor) : new RepositoryExporter(domain, copyPipeline);
+		try {
+			for (Iterator iter = exports.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				String fileName = (String) entry.getKey();
+				ChangeSet.Change change = (ChangeSet.Change) entry.getValue();
+				String npath = change.getPath().split("trunk")[1];
+				exporter.submit(npath, change.getRevision(), fileName, new File(desPath + fileName));
+			}
+		} finally {
+			exporter.shutdown();
+		}
+	}
+
+	private static void addOutput(Map outputs, FilePath file) {
+		String fileName = file.getContext() + FilePath.separator + file.getFileName();
+		if (!outputs.containsKey(fileName)) {
+			outputs.put(fileName, file);
+		}
 	}
 
 	/**
@@ -92,72 +328,57 @@ public class Synchronizer {
 	 * @discription: 当前检出的文件是否属于目前的工程。
 	 * @modify:
 	 */
-	static boolean isSameProject(String path) {
-		String svnPath = SVN.SVNPATH;
+	boolean isSameProject(String path) {
+		String svnPath = svn.getSvnPath();
 		svnPath = svnPath.replaceAll("svn://10.110.1.24/svn/yaojian/", "/").replaceAll("/trunk", "/");
 		String filePath = path.split("trunk")[0];
 		return svnPath.equals(filePath);
 	}
 
-	private static void copy(FilePath file, String desPath) {
+	private void copy(FilePath file, String desPath) {
 		String fileName = file.getContext() + FilePath.separator + file.getFileName();
 		String sourcePath = file.getBase() + fileName;
 		String destPath = desPath + fileName;
-		if (new File(sourcePath).exists()) {
-			System.out.println("\t file found. copy from :\t" + sourcePath + " \n");
-			FileCopy.copy(sourcePath, destPath);
+		long begin = System.nanoTime();
+		boolean found = outputIndex.exists(file.getBase() + file.getContext(), file.getFileName());
+		metrics.add(SyncMetrics.LOOKUP, System.nanoTime() - begin, found ? 1 : 0);
+		if (found) {
+			log.debug("copy", "source", sourcePath, "target", destPath);
+			copyPipeline.submit(new CopyTask(sourcePath, destPath, fileName));
 		} else {
-			System.err.println("\t Not found: \t" + sourcePath + "\n");
+			copyPipeline.getReport().addMissing();
+			log.warn("missing", "source", sourcePath);
 		}
 	}
 
-	private static List getNameTemplates(FilePath filePath) {
-		List nameTemplates = new ArrayList();
-		nameTemplates.add("^" + filePath.getName() + "[$][^.]+[.]class$");
-		return nameTemplates;
-	}
-
-	private static List getJavaRelativeFiles(FilePath filePath1) {
-		List nameTemplates = getNameTemplates(filePath1);
+	/**
+	 * @discription: 同一目录下的 Outer$*.class 内部类文件。
+	 */
+	List getJavaRelativeFiles(FilePath filePath1) {
 		List allFiles = new ArrayList();
-		if (nameTemplates.size() > 0) {
-			for (Iterator iter = nameTemplates.iterator(); iter.hasNext();) {
-				String fileName = (String) iter.next();
-				File[] files = FileCopy.findFile(filePath1.getBase() + filePath1.getContext(), fileName);
-				if (files != null && files.length > 0) {
-					for (int k = 0; k < files.length; k++) {
-						File file = files[k];
-						FilePath filePath2 = new FilePath(filePath1);
-						filePath2.setFileName(file.getName());
-						allFiles.add(filePath2);
-					}
-				}
-			}
+		List names = outputIndex.getInnerClasses(filePath1.getBase() + filePath1.getContext(), filePath1.getName());
+		for (Iterator iter = names.iterator(); iter.hasNext();) {
+			FilePath filePath2 = new FilePath(filePath1);
+			filePath2.setFileName((String) iter.next());
+			allFiles.add(filePath2);
 		}
 		return allFiles;
 	}
 
-	/*
-	 * private static void replaceSrcWebRoot(FilePath filePath) { String path =
-	 * filePath.getContext(); if ((path).matches(
-	 * "^/((src_lib/[^/]+/.*$)|(src((/.*$)|$))|(WebRoot((/.*)|$)))")) { path =
-	 * path.replaceFirst("^/((src_lib/[^/]+/)|(src/))", "/WEB-INF/classes/");
-	 * path = path.replaceFirst("^/src$", "/WEB-INF/classes/"); path =
-	 * path.replaceFirst("^/WebRoot", "/"); } filePath.setContext(path); }
+	/**
+	 * @discription: 按 SvnDomain 的映射规则把源码目录换成输出目录。
 	 */
-
-	private static void replaceSrcWebRoot(FilePath filePath) {
+	void replaceSrcWebRoot(FilePath filePath) {
 		String path = filePath.getContext();
 		String spath = path;
-		path = path.replaceFirst("/src.*/com/", "/webapp/WEB-INF/classes/com/");
-		System.out.println("\t befor replace : " + spath + " \t after replace : " + path + "\t");
+		path = domain.getPathMapper().map(path);
+		log.trace("mapping", "before", spath, "after", path);
 		filePath.setContext(path);
 	}
 
 	public static void main(String[] args) {
-		String path = "/G3/dtd/dtd_food/samplingInspect/trunk/src/com/inspur/";
-		// path = path.replaceFirst("/src.*com/", "+++++");
-		path = path.replaceFirst("/src.*/com/", "/webapp/WEB-INF/classes/com/");
+		String path = "/src/com/inspur";
+		path = new PathMapper(PathMapper.WEBAPP_RULES).map(path);
 		System.out.println(" \t after replace : " + path + "\t");
 
 	}
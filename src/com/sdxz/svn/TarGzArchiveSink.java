@@ -0,0 +1,222 @@
+package com.sdxz.svn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @discription: tar.gz 格式的压缩包。tar 数据按顺序生成，每满 CHUNK_SIZE 字节交给线程池压缩成一个独立的 gzip 成员，
+ *               多个成员按顺序拼接（gzip 和 tar 都支持多成员的文件）。文件时间、属主固定，保证相同输入得到相同的文件。
+ */
+class TarGzArchiveSink extends ArchiveSink {
+
+	private static final int CHUNK_SIZE = 1024 * 1024;
+	private static final int BLOCK = 512;
+	private static final int NAME_LENGTH = 100;
+	private static final int PREFIX_LENGTH = 155;
+
+	TarGzArchiveSink(File archive, int threads) {
+		super(archive, threads);
+	}
+
+	protected void write(List entries, OutputStream out, ExecutorService executor, int window) throws IOException {
+		TarWriter tar = new TarWriter(out, executor, window);
+		try {
+			for (Iterator iter = entries.iterator(); iter.hasNext();) {
+				CopyTask task = (CopyTask) iter.next();
+				InputStream in;
+				try {
+					in = new FileInputStream(task.getSource());
+				} catch (IOException e) {
+					// 还没写头，跳过这个条目不影响 tar 数据
+					getReport().addFailed();
+					RunLog.get().error("archive-entry-failed", "source", task.getSource(), "error", e);
+					continue;
+				}
+				// 头写出去以后再出错，tar 数据已经不完整，异常直接抛出，整个压缩包作废
+				tar.writeEntry(task, in);
+				getReport().addCopied(task.getSource().length());
+			}
+			// tar 以两个全零的块结束
+			tar.write(new byte[BLOCK * 2], 0, BLOCK * 2);
+			tar.finish();
+		} finally {
+			tar.cancel();
+		}
+	}
+
+	private class TarWriter {
+		private final OutputStream out;
+		private final ExecutorService executor;
+		private final int window;
+		private final LinkedList futures = new LinkedList();
+		private ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_SIZE + BLOCK);
+
+		TarWriter(OutputStream out, ExecutorService executor, int window) {
+			this.out = out;
+			this.executor = executor;
+			this.window = window;
+		}
+
+		/**
+		 * @discription: 调用方先打开文件再调这里写头：文件打不开时整个条目不写，tar 数据保持完整。in 在这里关闭。
+		 */
+		void writeEntry(CopyTask task, InputStream in) throws IOException {
+			long size = task.getSource().length();
+			try {
+				byte[] name = getEntryName(task.getName()).getBytes("UTF-8");
+				writeHeader(name, size);
+				byte[] buffer = new byte[64 * 1024];
+				long remaining = size;
+				while (remaining > 0) {
+					int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if (n < 0) {
+						// 文件在读取过程中被截短，按头里的长度补零
+						Arrays.fill(buffer, (byte) 0);
+						n = (int) Math.min(buffer.length, remaining);
+					}
+					write(buffer, 0, n);
+					remaining -= n;
+				}
+				pad(size);
+			} finally {
+				CopyEngine.close(in);
+			}
+		}
+
+		private void writeHeader(byte[] name, long size) throws IOException {
+			if (name.length > NAME_LENGTH) {
+				int split = splitName(name);
+				if (split < 0) {
+					// GNU 长文件名：先写一个类型为 L 的条目保存完整文件名
+					byte[] longName = new byte[name.length + 1];
+					System.arraycopy(name, 0, longName, 0, name.length);
+					write(header("././@LongLink".getBytes("UTF-8"), null, longName.length, 'L'), 0, BLOCK);
+					write(longName, 0, longName.length);
+					pad(longName.length);
+					byte[] shortName = new byte[NAME_LENGTH];
+					System.arraycopy(name, 0, shortName, 0, NAME_LENGTH);
+					write(header(shortName, null, size, '0'), 0, BLOCK);
+					return;
+				}
+				byte[] prefix = new byte[split];
+				byte[] rest = new byte[name.length - split - 1];
+				System.arraycopy(name, 0, prefix, 0, prefix.length);
+				System.arraycopy(name, split + 1, rest, 0, rest.length);
+				write(header(rest, prefix, size, '0'), 0, BLOCK);
+				return;
+			}
+			write(header(name, null, size, '0'), 0, BLOCK);
+		}
+
+		/**
+		 * @discription: ustar 头里 prefix/name 的分割位置（'/' 的下标），分不开时返回 -1。
+		 */
+		private int splitName(byte[] name) {
+			for (int i = Math.min(PREFIX_LENGTH, name.length - 1); i > 0; i--) {
+				if (name[i] == '/' && name.length - i - 1 <= NAME_LENGTH && name.length - i - 1 > 0) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private byte[] header(byte[] name, byte[] prefix, long size, char type) {
+			byte[] header = new byte[BLOCK];
+			System.arraycopy(name, 0, header, 0, name.length);
+			octal(header, 100, 8, 0644);
+			octal(header, 108, 8, 0);
+			octal(header, 116, 8, 0);
+			octal(header, 124, 12, size);
+			octal(header, 136, 12, 0);
+			header[156] = (byte) type;
+			System.arraycopy(new byte[] { 'u', 's', 't', 'a', 'r', 0, '0', '0' }, 0, header, 257, 8);
+			if (prefix != null) {
+				System.arraycopy(prefix, 0, header, 345, prefix.length);
+			}
+			// 计算校验和时校验和字段按空格计算
+			for (int i = 148; i < 156; i++) {
+				header[i] = ' ';
+			}
+			long checksum = 0;
+			for (int i = 0; i < BLOCK; i++) {
+				checksum += header[i] & 0xFF;
+			}
+			octal(header, 148, 7, checksum);
+			return header;
+		}
+
+		private void octal(byte[] header, int offset, int length, long value) {
+			String digits = Long.toOctalString(value);
+			int width = length - 1;
+			for (int i = 0; i < width; i++) {
+				int index = digits.length() - width + i;
+				header[offset + i] = (byte) (index < 0 ? '0' : digits.charAt(index));
+			}
+			header[offset + width] = 0;
+		}
+
+		private void pad(long size) throws IOException {
+			int rest = (int) (size % BLOCK);
+			if (rest > 0) {
+				write(new byte[BLOCK - rest], 0, BLOCK - rest);
+			}
+		}
+
+		void write(byte[] b, int off, int len) throws IOException {
+			chunk.write(b, off, len);
+			if (chunk.size() >= CHUNK_SIZE) {
+				flushChunk();
+			}
+		}
+
+		private void flushChunk() throws IOException {
+			if (chunk.size() == 0) {
+				return;
+			}
+			final byte[] data = chunk.toByteArray();
+			chunk = new ByteArrayOutputStream(CHUNK_SIZE + BLOCK);
+			futures.add(executor.submit(new Callable() {
+				public Object call() throws Exception {
+					ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+					GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+					gzip.write(data);
+					gzip.finish();
+					return compressed.toByteArray();
+				}
+			}));
+			while (futures.size() >= window) {
+				writeCompressed();
+			}
+		}
+
+		private void writeCompressed() throws IOException {
+			byte[] compressed = (byte[]) take(futures);
+			if (compressed == null) {
+				throw new IOException("gzip compression failed");
+			}
+			out.write(compressed);
+		}
+
+		void finish() throws IOException {
+			flushChunk();
+			while (!futures.isEmpty()) {
+				writeCompressed();
+			}
+		}
+
+		void cancel() {
+			ArchiveSink.cancel(futures);
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package com.sdxz.svn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * @discription: zip/jar 格式的压缩包。每个条目在线程池里独立压缩成 raw deflate 数据，再按顺序写入，
+ *               所以这里自己写 zip 的文件头和目录区，而不用 ZipOutputStream。
+ *               超过 BUFFER_LIMIT 的文件不整块读进内存，由写入线程边读边压，大小和校验放在数据描述符里，超过 4G 时写 zip64。
+ *               条目时间固定为 1980-01-01，保证相同输入得到相同的文件。
+ */
+class ZipArchiveSink extends ArchiveSink {
+
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int DATA_DESCRIPTOR = 0x08074b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int END_OF_CENTRAL = 0x06054b50;
+	private static final int ZIP64_END_OF_CENTRAL = 0x06064b50;
+	private static final int ZIP64_LOCATOR = 0x07064b50;
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+	/** 通用标志第 11 位：文件名为 UTF-8。 */
+	private static final int FLAG_UTF8 = 0x0800;
+	/** 通用标志第 3 位：crc 和大小在数据后面的数据描述符里。 */
+	private static final int FLAG_DESCRIPTOR = 0x0008;
+	private static final int ZIP64_EXTRA = 0x0001;
+	private static final int VERSION = 20;
+	private static final int VERSION_ZIP64 = 45;
+	/** 1980-01-01 00:00:00 的 DOS 日期和时间。 */
+	private static final int DOS_DATE = (0 << 9) | (1 << 5) | 1;
+	private static final int DOS_TIME = 0;
+	private static final long MAX_32 = 0xFFFFFFFFL;
+	private static final int MAX_16 = 0xFFFF;
+	/** 小于这个大小的文件在线程池里整块压缩，同时在内存里的数据不超过 窗口 × 2 × BUFFER_LIMIT。 */
+	private static final int BUFFER_LIMIT = 1024 * 1024;
+	private static final int STREAM_BUFFER = 64 * 1024;
+	/** 不可压缩的数据 deflate 后会略微变大，离 4G 不到 1/64 时就按 zip64 写。 */
+	private static final long ZIP64_THRESHOLD = MAX_32 - (MAX_32 >>> 6);
+
+	ZipArchiveSink(File archive, int threads) {
+		super(archive, threads);
+	}
+
+	protected void write(List entries, OutputStream out, ExecutorService executor, int window) throws IOException {
+		ZipWriter writer = new ZipWriter(out);
+		LinkedList futures = new LinkedList();
+		try {
+			for (Iterator iter = entries.iterator(); iter.hasNext();) {
+				futures.add(executor.submit(new Compress((CopyTask) iter.next())));
+				if (futures.size() >= window) {
+					writer.writeEntry((Entry) take(futures));
+				}
+			}
+			while (!futures.isEmpty()) {
+				writer.writeEntry((Entry) take(futures));
+			}
+		} finally {
+			cancel(futures);
+		}
+		writer.finish();
+	}
+
+	static byte[] readFully(File file) throws IOException {
+		long length = file.length();
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("file too large for archive entry: " + file);
+		}
+		byte[] data = new byte[(int) length];
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			in.readFully(data);
+		} finally {
+			CopyEngine.close(in);
+		}
+		return data;
+	}
+
+	private static class Entry {
+		byte[] name;
+		int flags = FLAG_UTF8;
+		int method;
+		long crc;
+		long size;
+		long compressedSize;
+		byte[] data;
+		long offset;
+		/** 边读边压的大文件，data 为 null。 */
+		File source;
+		boolean zip64;
+	}
+
+	private class Compress implements Callable {
+		private final CopyTask task;
+
+		Compress(CopyTask task) {
+			this.task = task;
+		}
+
+		public Object call() throws Exception {
+			Entry entry = new Entry();
+			entry.name = getEntryName(task.getName()).getBytes("UTF-8");
+			if (task.getSource().length() > BUFFER_LIMIT) {
+				entry.source = task.getSource();
+				return entry;
+			}
+			byte[] content = readFully(task.getSource());
+			entry.size = content.length;
+			CRC32 crc = new CRC32();
+			crc.update(content);
+			entry.crc = crc.getValue();
+
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				deflater.setInput(content);
+				deflater.finish();
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+				byte[] buffer = new byte[8192];
+				while (!deflater.finished()) {
+					int n = deflater.deflate(buffer);
+					compressed.write(buffer, 0, n);
+				}
+				if (compressed.size() < content.length) {
+					entry.method = DEFLATED;
+					entry.data = compressed.toByteArray();
+				} else {
+					entry.method = STORED;
+					entry.data = content;
+				}
+			} finally {
+				deflater.end();
+			}
+			return entry;
+		}
+	}
+
+	private class ZipWriter {
+		private final OutputStream out;
+		private final List written = new ArrayList();
+		private long offset;
+
+		ZipWriter(OutputStream out) {
+			this.out = out;
+		}
+
+		void writeEntry(Entry entry) throws IOException {
+			if (entry == null) {
+				return;
+			}
+			if (entry.source != null) {
+				writeStreamed(entry);
+				return;
+			}
+			entry.offset = offset;
+			entry.compressedSize = entry.data.length;
+			ByteArrayOutputStream header = new ByteArrayOutputStream(30 + entry.name.length);
+			writeInt(header, LOCAL_HEADER);
+			writeShort(header, VERSION);
+			writeShort(header, entry.flags);
+			writeShort(header, entry.method);
+			writeShort(header, DOS_TIME);
+			writeShort(header, DOS_DATE);
+			writeInt(header, entry.crc);
+			writeInt(header, entry.data.length);
+			writeInt(header, entry.size);
+			writeShort(header, entry.name.length);
+			writeShort(header, 0);
+			header.write(entry.name);
+			header.writeTo(out);
+			out.write(entry.data);
+			offset += header.size() + entry.data.length;
+
+			getReport().addCopied(entry.size);
+			entry.data = null;
+			written.add(entry);
+		}
+
+		/**
+		 * @discription: 先打开文件再写头，打不开时跳过这个条目；头写出去以后的错误直接抛出，整个压缩包作废。
+		 */
+		private void writeStreamed(Entry entry) throws IOException {
+			InputStream in;
+			try {
+				in = new FileInputStream(entry.source);
+			} catch (IOException e) {
+				getReport().addFailed();
+				RunLog.get().error("archive-entry-failed", "source", entry.source, "error", e);
+				return;
+			}
+			try {
+				entry.flags = FLAG_UTF8 | FLAG_DESCRIPTOR;
+				entry.method = DEFLATED;
+				entry.zip64 = entry.source.length() >= ZIP64_THRESHOLD;
+				entry.offset = offset;
+				ByteArrayOutputStream header = new ByteArrayOutputStream(50 + entry.name.length);
+				writeInt(header, LOCAL_HEADER);
+				writeShort(header, entry.zip64 ? VERSION_ZIP64 : VERSION);
+				writeShort(header, entry.flags);
+				writeShort(header, entry.method);
+				writeShort(header, DOS_TIME);
+				writeShort(header, DOS_DATE);
+				writeInt(header, 0);
+				writeInt(header, entry.zip64 ? MAX_32 : 0);
+				writeInt(header, entry.zip64 ? MAX_32 : 0);
+				writeShort(header, entry.name.length);
+				writeShort(header, entry.zip64 ? 20 : 0);
+				header.write(entry.name);
+				if (entry.zip64) {
+					writeShort(header, ZIP64_EXTRA);
+					writeShort(header, 16);
+					writeLong(header, 0);
+					writeLong(header, 0);
+				}
+				header.writeTo(out);
+				offset += header.size();
+
+				CRC32 crc = new CRC32();
+				Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+				try {
+					byte[] input = new byte[STREAM_BUFFER];
+					byte[] output = new byte[STREAM_BUFFER];
+					int n;
+					while ((n = in.read(input)) > 0) {
+						crc.update(input, 0, n);
+						entry.size += n;
+						deflater.setInput(input, 0, n);
+						while (!deflater.needsInput()) {
+							int compressed = deflater.deflate(output);
+							out.write(output, 0, compressed);
+							entry.compressedSize += compressed;
+						}
+					}
+					deflater.finish();
+					while (!deflater.finished()) {
+						int compressed = deflater.deflate(output);
+						out.write(output, 0, compressed);
+						entry.compressedSize += compressed;
+					}
+				} finally {
+					deflater.end();
+				}
+				entry.crc = crc.getValue();
+				if (!entry.zip64 && (entry.size >= MAX_32 || entry.compressedSize >= MAX_32)) {
+					throw new IOException("file grew past 4G while writing archive entry: " + entry.source);
+				}
+				offset += entry.compressedSize;
+
+				ByteArrayOutputStream descriptor = new ByteArrayOutputStream(24);
+				writeInt(descriptor, DATA_DESCRIPTOR);
+				writeInt(descriptor, entry.crc);
+				if (entry.zip64) {
+					writeLong(descriptor, entry.compressedSize);
+					writeLong(descriptor, entry.size);
+				} else {
+					writeInt(descriptor, entry.compressedSize);
+					writeInt(descriptor, entry.size);
+				}
+				descriptor.writeTo(out);
+				offset += descriptor.size();
+			} finally {
+				CopyEngine.close(in);
+			}
+
+			getReport().addCopied(entry.size);
+			entry.source = null;
+			written.add(entry);
+		}
+
+		void finish() throws IOException {
+			long centralOffset = offset;
+			ByteArrayOutputStream central = new ByteArrayOutputStream();
+			for (Iterator iter = written.iterator(); iter.hasNext();) {
+				Entry entry = (Entry) iter.next();
+				// 大小或偏移放不进 32 位时，目录项里写 0xFFFFFFFF，真实值放在 zip64 扩展字段
+				boolean largeSizes = entry.zip64 || entry.size >= MAX_32 || entry.compressedSize >= MAX_32;
+				boolean largeOffset = entry.offset >= MAX_32;
+				int extra = (largeSizes ? 16 : 0) + (largeOffset ? 8 : 0);
+				int version = extra > 0 ? VERSION_ZIP64 : VERSION;
+				writeInt(central, CENTRAL_HEADER);
+				writeShort(central, version);
+				writeShort(central, version);
+				writeShort(central, entry.flags);
+				writeShort(central, entry.method);
+				writeShort(central, DOS_TIME);
+				writeShort(central, DOS_DATE);
+				writeInt(central, entry.crc);
+				writeInt(central, largeSizes ? MAX_32 : entry.compressedSize);
+				writeInt(central, largeSizes ? MAX_32 : entry.size);
+				writeShort(central, entry.name.length);
+				writeShort(central, extra > 0 ? extra + 4 : 0);
+				writeShort(central, 0);
+				writeShort(central, 0);
+				writeShort(central, 0);
+				writeInt(central, 0);
+				writeInt(central, largeOffset ? MAX_32 : entry.offset);
+				central.write(entry.name);
+				if (extra > 0) {
+					writeShort(central, ZIP64_EXTRA);
+					writeShort(central, extra);
+					if (largeSizes) {
+						writeLong(central, entry.size);
+						writeLong(central, entry.compressedSize);
+					}
+					if (largeOffset) {
+						writeLong(central, entry.offset);
+					}
+				}
+				if (central.size() >= 64 * 1024) {
+					offset += central.size();
+					central.writeTo(out);
+					central.reset();
+				}
+			}
+			offset += central.size();
+			central.writeTo(out);
+			central.reset();
+			long centralSize = offset - centralOffset;
+			long count = written.size();
+
+			// 条目超过 65535 个时需要 zip64 目录结束记录
+			if (count >= MAX_16 || centralOffset >= MAX_32 || centralSize >= MAX_32) {
+				long zip64Offset = offset;
+				writeInt(central, ZIP64_END_OF_CENTRAL);
+				writeLong(central, 44);
+				writeShort(central, VERSION_ZIP64);
+				writeShort(central, VERSION_ZIP64);
+				writeInt(central, 0);
+				writeInt(central, 0);
+				writeLong(central, count);
+				writeLong(central, count);
+				writeLong(central, centralSize);
+				writeLong(central, centralOffset);
+
+				writeInt(central, ZIP64_LOCATOR);
+				writeInt(central, 0);
+				writeLong(central, zip64Offset);
+				writeInt(central, 1);
+			}
+			writeInt(central, END_OF_CENTRAL);
+			writeShort(central, 0);
+			writeShort(central, 0);
+			writeShort(central, (int) Math.min(count, MAX_16));
+			writeShort(central, (int) Math.min(count, MAX_16));
+			writeInt(central, Math.min(centralSize, MAX_32));
+			writeInt(central, Math.min(centralOffset, MAX_32));
+			writeShort(central, 0);
+			central.writeTo(out);
+		}
+	}
+
+	private static void writeShort(ByteArrayOutputStream out, int v) {
+		out.write(v & 0xFF);
+		out.write((v >>> 8) & 0xFF);
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, long v) {
+		out.write((int) (v & 0xFF));
+		out.write((int) ((v >>> 8) & 0xFF));
+		out.write((int) ((v >>> 16) & 0xFF));
+		out.write((int) ((v >>> 24) & 0xFF));
+	}
+
+	private static void writeLong(ByteArrayOutputStream out, long v) {
+		writeInt(out, v & MAX_32);
+		writeInt(out, v >>> 32);
+	}
+}
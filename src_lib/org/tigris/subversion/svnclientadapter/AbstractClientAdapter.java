@@ -15,7 +15,14 @@
  */
 package org.tigris.subversion.svnclientadapter;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -29,6 +36,8 @@ import java.util.StringTokenizer;
  */
 public abstract class AbstractClientAdapter implements ISVNClientAdapter {
 
+    private final static long CONTENT_BLOCK = 1024 * 1024;
+
     /* (non-Javadoc)
      * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#setKeywords(java.io.File, org.tigris.subversion.svnclientadapter.SVNKeywords, boolean)
      */
@@ -174,6 +183,110 @@ public abstract class AbstractClientAdapter implements ISVNClientAdapter {
         return null;
     }
     
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#diffSummarize(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, boolean)
+     */
+    public ISVNLogMessageChangePath[] diffSummarize(SVNUrl oldUrl, SVNRevision oldUrlRevision,
+            SVNUrl newUrl, SVNRevision newUrlRevision, boolean recurse) throws SVNClientException {
+        notImplementedYet();
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#diffSummarize(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNRevision, boolean)
+     */
+    public ISVNLogMessageChangePath[] diffSummarize(SVNUrl url, SVNRevision oldUrlRevision,
+            SVNRevision newUrlRevision, boolean recurse) throws SVNClientException {
+        return diffSummarize(url, oldUrlRevision, url, newUrlRevision, recurse);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getLogMessages(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNRevision, boolean, org.tigris.subversion.svnclientadapter.ISVNLogMessageCallback)
+     */
+    public void getLogMessages(SVNUrl url, SVNRevision revisionStart, SVNRevision revisionEnd,
+            boolean fetchChangePath, ISVNLogMessageCallback callback) throws SVNClientException {
+        // Default implementation reads all the messages first
+        sendLogMessages(getLogMessages(url, revisionStart, revisionEnd, fetchChangePath), callback);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getLogMessages(java.io.File, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNRevision, boolean, org.tigris.subversion.svnclientadapter.ISVNLogMessageCallback)
+     */
+    public void getLogMessages(File path, SVNRevision revisionStart, SVNRevision revisionEnd,
+            boolean fetchChangePath, ISVNLogMessageCallback callback) throws SVNClientException {
+        // Default implementation reads all the messages first
+        sendLogMessages(getLogMessages(path, revisionStart, revisionEnd, fetchChangePath), callback);
+    }
+
+    private static void sendLogMessages(ISVNLogMessage[] messages, ISVNLogMessageCallback callback) {
+        if (messages == null)
+            return;
+        for (int i = 0; i < messages.length; i++) {
+            callback.singleMessage(messages[i]);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getList(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, boolean, java.lang.String, org.tigris.subversion.svnclientadapter.SVNNodeKind, org.tigris.subversion.svnclientadapter.ISVNDirEntryCallback)
+     */
+    public void getList(SVNUrl url, SVNRevision revision, boolean recurse,
+            String pathPrefix, SVNNodeKind kind, ISVNDirEntryCallback callback) throws SVNClientException {
+        // Default implementation reads all the entries first
+        ISVNDirEntry[] entries = getList(url, revision, recurse);
+        if (entries == null)
+            return;
+        for (int i = 0; i < entries.length; i++) {
+            if (pathPrefix != null && !entries[i].getPath().startsWith(pathPrefix))
+                continue;
+            if (kind != null && !kind.equals(entries[i].getNodeKind()))
+                continue;
+            if (!callback.singleEntry(entries[i]))
+                return;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getContent(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, java.io.File)
+     */
+    public long getContent(SVNUrl url, SVNRevision revision, File destination) throws SVNClientException {
+        InputStream content = null;
+        FileOutputStream out = null;
+        boolean complete = false;
+        try {
+            content = getContent(url, revision, revision);
+            out = new FileOutputStream(destination);
+            // the channel copies in large blocks, straight from the content
+            // stream to the file
+            FileChannel channel = out.getChannel();
+            ReadableByteChannel source = Channels.newChannel(content);
+            long total = 0;
+            long count;
+            while ((count = channel.transferFrom(source, total, CONTENT_BLOCK)) > 0) {
+                total += count;
+            }
+            complete = true;
+            return total;
+        } catch (IOException e) {
+            throw SVNClientException.wrapException(e);
+        } finally {
+            close(out);
+            close(content);
+            // an empty or partial file must not be taken for the content
+            if (!complete)
+                destination.delete();
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+    }
+
     protected void notImplementedYet() throws SVNClientException {
         throw new SVNClientException("Not implemented yet");
     }
@@ -181,4 +294,11 @@ public abstract class AbstractClientAdapter implements ISVNClientAdapter {
     public boolean canCommitAcrossWC() {
         return false;
     }
+
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#dispose()
+     */
+    public void dispose() {
+        // nothing held by default
+    }
 }
@@ -153,6 +153,28 @@ public interface ISVNClientAdapter {
 	 */	
 	public ISVNDirEntry[] getList(File path, SVNRevision revision, boolean recurse) 
     	throws SVNClientException;	
+
+	/**
+	 * List directory entries of a URL, handing each entry to the callback
+	 * as soon as it has been read instead of returning them all at once.
+	 * Entries that do not match the filters are skipped before they are
+	 * created.
+	 * @param url
+	 * @param revision
+	 * @param recurse
+	 * @param pathPrefix only the entries whose path starts with it, null for all
+	 * @param kind only the entries of this kind, null for all
+	 * @param callback returns false to stop the listing
+	 * @throws SVNClientException
+	 */
+	public abstract void getList(
+		SVNUrl url,
+		SVNRevision revision,
+		boolean recurse,
+		String pathPrefix,
+		SVNNodeKind kind,
+		ISVNDirEntryCallback callback)
+		throws SVNClientException;
 	
 	/**
 	 * get the dirEntry for the given url
@@ -453,6 +475,40 @@ public interface ISVNClientAdapter {
 		SVNRevision revisionEnd,
 		boolean fetchChangePath)
 		throws SVNClientException;
+	/**
+	 * Get the log messages for a set of revision(s), handing each message
+	 * to the callback as soon as it has been read instead of returning
+	 * them all at once. The memory used does not grow with the number of
+	 * revisions.
+	 * @param url
+	 * @param revisionStart
+	 * @param revisionEnd
+	 * @param fetchChangePath
+	 * @param callback
+	 */
+	public abstract void getLogMessages(
+		SVNUrl url,
+		SVNRevision revisionStart,
+		SVNRevision revisionEnd,
+		boolean fetchChangePath,
+		ISVNLogMessageCallback callback)
+		throws SVNClientException;
+	/**
+	 * Get the log messages for a set of revision(s), handing each message
+	 * to the callback as soon as it has been read.
+	 * @param path
+	 * @param revisionStart
+	 * @param revisionEnd
+	 * @param fetchChangePath
+	 * @param callback
+	 */
+	public abstract void getLogMessages(
+		File path,
+		SVNRevision revisionStart,
+		SVNRevision revisionEnd,
+		boolean fetchChangePath,
+		ISVNLogMessageCallback callback)
+		throws SVNClientException;
 	/**
 	 * get the content of a file
 	 * @param url
@@ -460,6 +516,17 @@ public interface ISVNClientAdapter {
 	 */
 	public abstract InputStream getContent(SVNUrl url, SVNRevision revision)
 		throws SVNClientException;
+
+	/**
+	 * get the content of a file. The url is looked up at pegRevision
+	 * (url@pegRevision), so a file renamed or deleted later is still found.
+	 * @param url
+	 * @param revision the revision of the content
+	 * @param pegRevision the revision at which the url is looked up
+	 * @throws SVNClientException
+	 */
+	public abstract InputStream getContent(SVNUrl url, SVNRevision revision, SVNRevision pegRevision)
+		throws SVNClientException;
 		
 	/**
 	 * get the content of a file
@@ -470,6 +537,20 @@ public interface ISVNClientAdapter {
 	 */
 	public InputStream getContent(File path, SVNRevision revision) 
 		throws SVNClientException;
+
+	/**
+	 * write the content of a file directly to a local file, without
+	 * holding it in memory. The url is looked up at the same revision
+	 * (url@revision).
+	 * @param url
+	 * @param revision
+	 * @param destination the file to write, it is overwritten and deleted
+	 *        again when the content cannot be read completely
+	 * @return the number of bytes written
+	 * @throws SVNClientException
+	 */
+	public long getContent(SVNUrl url, SVNRevision revision, File destination)
+		throws SVNClientException;
 		
 	/**
 	 * set a property
@@ -579,6 +660,27 @@ public interface ISVNClientAdapter {
 		boolean recurse)
 		throws SVNClientException;
 
+	/**
+	 * list the paths that differ between two urls, without the content
+	 * of the differences (svn diff --summarize).
+	 * The paths of the returned entries are relative to oldUrl, the action is
+	 * 'A'dded, 'D'eleted or 'M'odified (content or properties).
+	 */
+	public abstract ISVNLogMessageChangePath[] diffSummarize(
+		SVNUrl oldUrl,
+		SVNRevision oldUrlRevision,
+		SVNUrl newUrl,
+		SVNRevision newUrlRevision,
+		boolean recurse)
+		throws SVNClientException;
+
+	public abstract ISVNLogMessageChangePath[] diffSummarize(
+		SVNUrl url,
+		SVNRevision oldUrlRevision,
+		SVNRevision newUrlRevision,
+		boolean recurse)
+		throws SVNClientException;
+
     /**
      * returns the keywords used for substitution for the given resource
      * @param path
@@ -780,5 +882,11 @@ public interface ISVNClientAdapter {
      */
     public abstract boolean canCommitAcrossWC();
 
+    /**
+     * Release the resources held by the client (native client, sessions).
+     * The client must not be used afterwards.
+     */
+    public abstract void dispose();
+
 
 }
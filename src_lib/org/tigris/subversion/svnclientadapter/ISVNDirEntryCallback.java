@@ -0,0 +1,32 @@
+/*
+ *  Copyright(c) 2003-2004 by the authors indicated in the @author tags.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tigris.subversion.svnclientadapter;
+
+/**
+ * Receives the entries of a directory listing one by one while they are
+ * read, so that a recursive listing does not have to be held in memory.
+ *
+ * @see ISVNClientAdapter#getList(SVNUrl, SVNRevision, boolean, String, SVNNodeKind, ISVNDirEntryCallback)
+ */
+public interface ISVNDirEntryCallback {
+
+	/**
+	 * called once for each entry, in the order svn lists them
+	 * @param entry
+	 * @return false to stop the listing, the remaining entries are not read
+	 */
+	public abstract boolean singleEntry(ISVNDirEntry entry);
+}
@@ -0,0 +1,31 @@
+/*
+ *  Copyright(c) 2003-2004 by the authors indicated in the @author tags.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tigris.subversion.svnclientadapter;
+
+/**
+ * Receives the log messages one by one while they are read, so that
+ * a log covering many revisions does not have to be held in memory.
+ *
+ * @see ISVNClientAdapter#getLogMessages(SVNUrl, SVNRevision, SVNRevision, boolean, ISVNLogMessageCallback)
+ */
+public interface ISVNLogMessageCallback {
+
+	/**
+	 * called once for each log message, in the order svn returns them
+	 * @param message
+	 */
+	public abstract void singleMessage(ISVNLogMessage message);
+}
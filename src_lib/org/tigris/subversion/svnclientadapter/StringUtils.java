@@ -53,15 +53,17 @@ public class StringUtils {
 	 */
 	static public String[] split(String str, String separator) {
 		List list = new ArrayList();
-		StringBuffer sb = new StringBuffer(str);
+		int start = 0;
 		int pos;
 		
-		while ((pos = sb.indexOf(separator)) != -1) {
-			list.add(sb.substring(0,pos));
-			sb.delete(0,pos+separator.length());
+		// walk the string instead of deleting from the front of a buffer,
+		// which copies the remaining text for every part
+		while ((pos = str.indexOf(separator, start)) != -1) {
+			list.add(str.substring(start,pos));
+			start = pos+separator.length();
 		}
-		if (sb.length() > 0) {
-			list.add(sb.toString());
+		if (start < str.length()) {
+			list.add(str.substring(start));
 		}
 		return (String[])list.toArray(new String[list.size()]);
 	}
@@ -15,33 +15,37 @@
  */
 package org.tigris.subversion.svnclientadapter.commandline;
 
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.Vector;
 
 import org.tigris.subversion.svnclientadapter.AbstractClientAdapter;
 import org.tigris.subversion.svnclientadapter.ISVNAnnotations;
 import org.tigris.subversion.svnclientadapter.ISVNDirEntry;
+import org.tigris.subversion.svnclientadapter.ISVNDirEntryCallback;
 import org.tigris.subversion.svnclientadapter.ISVNInfo;
 import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageCallback;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
 import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
 import org.tigris.subversion.svnclientadapter.ISVNProperty;
 import org.tigris.subversion.svnclientadapter.ISVNStatus;
 import org.tigris.subversion.svnclientadapter.SVNBaseDir;
 import org.tigris.subversion.svnclientadapter.SVNClientException;
 import org.tigris.subversion.svnclientadapter.SVNConstants;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
 import org.tigris.subversion.svnclientadapter.SVNRevision;
 import org.tigris.subversion.svnclientadapter.SVNStatusUnversioned;
 import org.tigris.subversion.svnclientadapter.SVNUrl;
-import org.tigris.subversion.svnclientadapter.StringUtils;
 
 /**
  * <p>
@@ -60,6 +64,7 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 	private SvnMultiArgCommandLine _cmdMulti = new SvnMultiArgCommandLine("svn",notificationHandler);
 	private SvnAdminCommandLine svnAdminCmd = new SvnAdminCommandLine("svnadmin",notificationHandler);
     private String version = null;
+    private final static int BUFFER_LENGTH = 64 * 1024;
 
     private static boolean availabilityCached = false;
     private static boolean available;
@@ -149,21 +154,34 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
         
         // we must do a svn status and svn info only on resources that are in versioned dirs 
         // because otherwise svn will stop after the first "svn: 'resource' is not a working copy" 
-        CmdLineStatuses cmdLineStatuses;
+        ISVNStatus[] cmdLineStatuses;
         try {
-            String cmdLineInfoStrings = _cmd.info(paths);
-            String cmdLineStatusStrings = _cmd.status(paths, false, true, false);
-            cmdLineStatuses = new CmdLineStatuses(cmdLineInfoStrings,cmdLineStatusStrings);
+            cmdLineStatuses = getXmlStatuses(paths, false, true);
 		} catch (CmdLineException e) {
 			throw SVNClientException.wrapException(e);
 		}
         
-        for (int i = 0; i < cmdLineStatuses.size();i++) {
-            ISVNStatus status = cmdLineStatuses.get(i);
-            for (int j=0; j < files.length;j++) {
-                if (files[j].getAbsoluteFile().equals(status.getFile())) {
-                    statuses[j] = status;
-                }
+        // index the requested files by absolute path : the same file can
+        // be asked for more than once
+        Map indexes = new HashMap(files.length * 2);
+        for (int j = 0; j < files.length; j++) {
+            File absPath = files[j].getAbsoluteFile();
+            List positions = (List)indexes.get(absPath);
+            if (positions == null) {
+                positions = new ArrayList(1);
+                indexes.put(absPath, positions);
+            }
+            positions.add(new Integer(j));
+        }
+        
+        for (int i = 0; i < cmdLineStatuses.length;i++) {
+            ISVNStatus status = cmdLineStatuses[i];
+            List positions = (List)indexes.get(status.getFile());
+            if (positions == null) {
+                continue;
+            }
+            for (int j = 0; j < positions.size(); j++) {
+                statuses[((Integer)positions.get(j)).intValue()] = status;
             }
         }
         
@@ -181,15 +199,39 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 
     private ISVNDirEntry[] getList(String target, SVNRevision rev, boolean recursive)
 		throws SVNClientException {
-	
-		byte[] listXml;
+		final List dirEntries = new ArrayList();
+		getList(target, rev, recursive, null, null, new ISVNDirEntryCallback() {
+			public boolean singleEntry(ISVNDirEntry entry) {
+				dirEntries.add(entry);
+				return true;
+			}
+		});
+		return (ISVNDirEntry[]) dirEntries.toArray(new ISVNDirEntry[dirEntries.size()]);
+	}    
+
+    private void getList(String target, SVNRevision rev, boolean recursive,
+    		String pathPrefix, SVNNodeKind kind, ISVNDirEntryCallback callback)
+		throws SVNClientException {
 		try {
-			listXml = _cmd.list(target, toString(rev), recursive);	
-			return CmdLineRemoteDirEntry.createDirEntries(listXml);
+			CommandLine.ProcessInputStream entries = _cmd.listStream(target, toString(rev), recursive);
+			try {
+				CmdLineRemoteDirEntry.parseDirEntries(entries, pathPrefix, kind, callback);
+			} catch (SVNClientException e) {
+				// an error printed by svn explains more than the broken xml
+				entries.close();
+				entries.waitFor();
+				throw e;
+			} finally {
+				// kills svn when the callback stopped the listing
+				entries.close();
+			}
+			entries.waitFor();
+        } catch (IOException e) {
+			throw SVNClientException.wrapException(e);
 		} catch (CmdLineException e) {
 			throw SVNClientException.wrapException(e);
 		}
-	}    
+	}
     
 	/* (non-Javadoc)
 	 * @see org.tigris.subversion.subclipse.client.ISVNClientAdapter#getList(java.net.URL, org.tigris.subversion.subclipse.client.ISVNRevision, boolean)
@@ -207,6 +249,15 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 		return getList(toString(path), revision, recurse);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getList(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, boolean, java.lang.String, org.tigris.subversion.svnclientadapter.SVNNodeKind, org.tigris.subversion.svnclientadapter.ISVNDirEntryCallback)
+	 */
+	public void getList(SVNUrl svnUrl, SVNRevision revision, boolean recurse,
+			String pathPrefix, SVNNodeKind kind, ISVNDirEntryCallback callback)
+		throws SVNClientException {
+		getList(toString(svnUrl), revision, recurse, pathPrefix, kind, callback);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getDirEntry(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision)
@@ -216,15 +267,7 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 		
 		// list give the DirEntrys of the elements of a directory or the DirEntry
 		// of a file
-		ISVNDirEntry[] entries = getList(url.getParent(),revision,false);
-		
-		String expectedPath = url.getLastPathSegment();
-		for (int i = 0; i < entries.length;i++) {
-			if (entries[i].getPath().equals(expectedPath)) {
-				return entries[i];
-			}
-		}
-		return null; // not found
+		return getDirEntry(toString(url.getParent()), revision, url.getLastPathSegment());
 	}
 	
 	/* (non-Javadoc)
@@ -234,15 +277,23 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 			throws SVNClientException {
 		// list give the DirEntrys of the elements of a directory or the DirEntry
 		// of a file
-		ISVNDirEntry[] entries = getList(path.getParentFile(),revision,false);
-		
-		String expectedPath = path.getName();
-		for (int i = 0; i < entries.length;i++) {
-			if (entries[i].getPath().equals(expectedPath)) {
-				return entries[i];
+		return getDirEntry(toString(path.getParentFile()), revision, path.getName());
+	}
+
+	private ISVNDirEntry getDirEntry(String parent, SVNRevision revision, final String expectedPath)
+			throws SVNClientException {
+		final ISVNDirEntry[] found = new ISVNDirEntry[1];
+		// the listing stops as soon as the entry has been seen
+		getList(parent, revision, false, expectedPath, null, new ISVNDirEntryCallback() {
+			public boolean singleEntry(ISVNDirEntry entry) {
+				if (entry.getPath().equals(expectedPath)) {
+					found[0] = entry;
+					return false;
+				}
+				return true;
 			}
-		}
-		return null; // not found
+		});
+		return found[0]; // null if not found
 	}
 	
 	/* (non-Javadoc)
@@ -279,21 +330,27 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 	public InputStream getContent(SVNUrl arg0, SVNRevision arg1) throws SVNClientException {
 
 		try {
-			InputStream content = _cmd.cat(toString(arg0), toString(arg1));
-
-			//read byte-by-byte and put it in a vector.
-			//then take the vector and fill a byteArray.
-			byte[] byteArray;
-			byteArray = streamToByteArray(content);
-			return new ByteArrayInputStream(byteArray);
-		} catch (IOException e) {
-			throw SVNClientException.wrapException(e);
+			// the content is read from svn while it is running, the caller
+			// must close the stream
+			return _cmd.cat(toString(arg0), toString(arg1));
 		} catch (CmdLineException e) {
 			throw SVNClientException.wrapException(e);
 		}
 
 	}
 
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getContent(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNRevision)
+	 */
+	public InputStream getContent(SVNUrl url, SVNRevision revision, SVNRevision pegRevision)
+		throws SVNClientException {
+		try {
+			return _cmd.cat(toString(url) + "@" + toString(pegRevision), toString(revision));
+		} catch (CmdLineException e) {
+			throw SVNClientException.wrapException(e);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getContent(java.io.File, org.tigris.subversion.svnclientadapter.SVNRevision)
@@ -301,15 +358,9 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 	public InputStream getContent(File path, SVNRevision revision) throws SVNClientException {
 
 		try {
-			InputStream content = _cmd.cat(toString(path), toString(revision));
-
-			//read byte-by-byte and put it in a vector.
-			//then take the vector and fill a byteArray.
-			byte[] byteArray;
-			byteArray = streamToByteArray(content);
-			return new ByteArrayInputStream(byteArray);
-		} catch (IOException e) {
-			throw SVNClientException.wrapException(e);
+			// the content is read from svn while it is running, the caller
+			// must close the stream
+			return _cmd.cat(toString(path), toString(revision));
 		} catch (CmdLineException e) {
 			throw SVNClientException.wrapException(e);
 		}
@@ -552,30 +603,7 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
     public ISVNStatus[] getStatus(File path, boolean descend, boolean getAll)     
 	   throws SVNClientException {
 		try {
-			// first we get the status of the files
-            String statusLinesString = _cmd.status(new String[] { toString(path) },descend,getAll, false);
-
-            String[] parts = StringUtils.split(statusLinesString,Helper.NEWLINE);
-            CmdLineStatusPart[] cmdLineStatusParts = new CmdLineStatusPart[parts.length];
-            String[] targetsInfo = new String[parts.length];
-            for (int i = 0; i < parts.length;i++) {
-                cmdLineStatusParts[i] = new CmdLineStatusPart(parts[i]);
-                targetsInfo[i] = cmdLineStatusParts[i].getFile().toString();
-            }
-
-            // this is not enough, so we get info from the files
-            String infoLinesString = _cmd.info(targetsInfo);
-                 
-            parts = CmdLineInfoPart.parseInfoParts(infoLinesString);
-            CmdLineInfoPart[] cmdLineInfoParts = new CmdLineInfoPart[parts.length];
-            for (int i = 0; i < parts.length;i++) {
-                cmdLineInfoParts[i] = new CmdLineInfoPart(parts[i]);
-            }                 
-
-            CmdLineStatuses cmdLineStatuses = new CmdLineStatuses(cmdLineInfoParts, cmdLineStatusParts);
-            
-            return cmdLineStatuses.toArray();
-
+			return getXmlStatuses(new String[] { toString(path) }, descend, getAll);
 		} catch (CmdLineException e) {
 			if (e.getMessage().trim().matches("svn:.*is not a working copy.*")) {
 				return new ISVNStatus[] {new SVNStatusUnversioned(path)};
@@ -584,6 +612,47 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 		}
 	}
 
+	/**
+	 * runs a single svn status --xml and reads the statuses while svn is
+	 * running. svn info is only run on the entries that status cannot
+	 * describe completely.
+	 */
+	private ISVNStatus[] getXmlStatuses(String[] paths, boolean descend, boolean getAll)
+		throws CmdLineException, SVNClientException {
+		if (paths.length == 0) {
+			// otherwise we would do a "svn status" without args
+			return new ISVNStatus[0];
+		}
+		try {
+			CmdLineXmlStatuses cmdLineStatuses;
+			CommandLine.ProcessInputStream statusStream = _cmd.statusStream(paths, descend, getAll, false);
+			try {
+				cmdLineStatuses = new CmdLineXmlStatuses(statusStream);
+			} catch (SVNClientException e) {
+				// an error printed by svn explains more than the broken xml
+				statusStream.close();
+				statusStream.waitFor();
+				throw e;
+			} finally {
+				statusStream.close();
+			}
+			statusStream.waitFor();
+
+			String[] targetsInfo = cmdLineStatuses.getPathsNeedingInfo();
+			if (targetsInfo.length > 0) {
+				String[] parts = CmdLineInfoPart.parseInfoParts(_cmd.info(targetsInfo));
+				CmdLineInfoPart[] cmdLineInfoParts = new CmdLineInfoPart[parts.length];
+				for (int i = 0; i < parts.length;i++) {
+					cmdLineInfoParts[i] = new CmdLineInfoPart(parts[i]);
+				}
+				cmdLineStatuses.setInfoParts(cmdLineInfoParts);
+			}
+			return cmdLineStatuses.toArray();
+		} catch (IOException e) {
+			throw SVNClientException.wrapException(e);
+		}
+	}
+
 	private void diff(
 		String oldPath,
 		SVNRevision oldPathRevision,
@@ -675,6 +744,38 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 		diff(url, oldUrlRevision, url, newUrlRevision, outFile, recurse);
 	}
 
+    /*
+     * (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#diffSummarize(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, boolean)
+     */
+	public ISVNLogMessageChangePath[] diffSummarize(
+		SVNUrl oldUrl,
+		SVNRevision oldUrlRevision,
+		SVNUrl newUrl,
+		SVNRevision newUrlRevision,
+		boolean recurse)
+		throws SVNClientException {
+		if (newUrl == null)
+			newUrl = oldUrl;
+		if (oldUrlRevision == null)
+			oldUrlRevision = SVNRevision.HEAD;
+		if (newUrlRevision == null)
+			newUrlRevision = SVNRevision.HEAD;
+
+		try {
+			byte[] summaryXml =
+				_cmd.diffSummarize(
+					toString(oldUrl),
+					toString(oldUrlRevision),
+					toString(newUrl),
+					toString(newUrlRevision),
+					recurse);
+			return CmdLineDiffSummary.createChangePaths(summaryXml, toString(oldUrl));
+		} catch (CmdLineException e) {
+			throw SVNClientException.wrapException(e);
+		}
+	}
+
     /*
      * (non-Javadoc)
      * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#propertyGet(java.io.File, java.lang.String)
@@ -887,54 +988,111 @@ public class CmdLineClientAdapter extends AbstractClientAdapter {
 		SVNRevision revisionEnd,
 		boolean fetchChangePath)
 		throws SVNClientException {
+		final List logMessages = new ArrayList();
+		getLogMessages(pathOrUrl, revisionStart, revisionEnd, fetchChangePath, new ISVNLogMessageCallback() {
+			public void singleMessage(ISVNLogMessage message) {
+				logMessages.add(message);
+			}
+		});
+		return (ISVNLogMessage[]) logMessages.toArray(new ISVNLogMessage[logMessages.size()]);
+	}
+
+    /**
+     * Streaming implementation used by all overloads of <code>getLogMessages()</code>.
+     * The xml is parsed while svn is writing it; nothing but the current
+     * message is held in memory.
+     */
+	private void getLogMessages(
+		Object pathOrUrl,
+		SVNRevision revisionStart,
+		SVNRevision revisionEnd,
+		boolean fetchChangePath,
+		ISVNLogMessageCallback callback)
+		throws SVNClientException {
 		String revRange = toString(revisionStart) + ":" +
             toString(revisionEnd);
 		try {
-            byte[] messages;
-
             // To acquire the paths associated with each delta, we'd
             // have to include the --verbose argument.
-			if (fetchChangePath) {
-                messages = _cmd.logVerbose(toString(pathOrUrl), revRange);
-			} else {
-                messages = _cmd.log(toString(pathOrUrl), revRange);
+			CommandLine.ProcessInputStream messages = _cmd.logStream(toString(pathOrUrl), revRange, fetchChangePath);
+			try {
+				CmdLineLogMessage.parseLogMessages(messages, callback);
+			} catch (SVNClientException e) {
+				// an error printed by svn explains more than the broken xml
+				messages.close();
+				messages.waitFor();
+				throw e;
+			} finally {
+				messages.close();
 			}
-			return CmdLineLogMessage.createLogMessages(messages);
+			messages.waitFor();
+        } catch (IOException e) {
+			throw SVNClientException.wrapException(e);
         } catch (CmdLineException e) {
 			throw SVNClientException.wrapException(e);
 		}
 	}
 
+    /*
+     * (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getLogMessages(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNRevision, boolean, org.tigris.subversion.svnclientadapter.ISVNLogMessageCallback)
+     */
+	public void getLogMessages(
+		SVNUrl url,
+		SVNRevision revisionStart,
+		SVNRevision revisionEnd,
+		boolean fetchChangePath,
+		ISVNLogMessageCallback callback)
+		throws SVNClientException {
+		getLogMessages((Object) url, revisionStart, revisionEnd, fetchChangePath, callback);
+	}
+
+    /*
+     * (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#getLogMessages(java.io.File, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNRevision, boolean, org.tigris.subversion.svnclientadapter.ISVNLogMessageCallback)
+     */
+	public void getLogMessages(
+		File path,
+		SVNRevision revisionStart,
+		SVNRevision revisionEnd,
+		boolean fetchChangePath,
+		ISVNLogMessageCallback callback)
+		throws SVNClientException {
+		getLogMessages((Object) path, revisionStart, revisionEnd, fetchChangePath, callback);
+	}
+
 	private static void streamToFile(InputStream stream, File outFile) throws IOException {
-		int tempByte;
+		byte[] buffer = new byte[BUFFER_LENGTH];
+		int bytesRead;
 		try {
 			FileOutputStream os = new FileOutputStream(outFile);
-			while ((tempByte = stream.read()) != -1) {
-				os.write(tempByte);
+			try {
+				while ((bytesRead = stream.read(buffer)) != -1) {
+					os.write(buffer, 0, bytesRead);
+				}
+			} finally {
+				os.close();
 			}
-			os.close();
-			stream.close();
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
+		} finally {
+			stream.close();
 		}
 	}
 
 	private static byte[] streamToByteArray(InputStream stream)
 		throws IOException {
-		//read byte-by-byte and put it in a vector.
-		//then take the vector and fill a byteArray.
-		Vector buffer = new Vector(1024);
-		int tempByte;
-		while ((tempByte = stream.read()) != -1) {
-			buffer.add(new Byte((byte) tempByte));
-		}
-
-		byte[] byteArray = new byte[buffer.size()];
-		for (int i = 0; i < byteArray.length; i++) {
-			Byte b = (Byte) buffer.get(i);
-			byteArray[i] = b.byteValue();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_LENGTH);
+		byte[] buffer = new byte[BUFFER_LENGTH];
+		int bytesRead;
+		try {
+			while ((bytesRead = stream.read(buffer)) != -1) {
+				bytes.write(buffer, 0, bytesRead);
+			}
+		} finally {
+			stream.close();
 		}
-		return byteArray;
+		return bytes.toByteArray();
 	}
 
 	private ISVNAnnotations annotate(String target, SVNRevision revisionStart, SVNRevision revisionEnd) throws SVNClientException {
@@ -0,0 +1,156 @@
+/*
+ *  Copyright(c) 2003-2004 by the authors indicated in the @author tags.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tigris.subversion.svnclientadapter.commandline;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNLogMessageChangePath;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * <p>
+ * Reads the changed paths printed by "svn diff --summarize --xml".</p>
+ */
+class CmdLineDiffSummary extends CmdLineXmlCommand {
+
+	private CmdLineDiffSummary() {
+	}
+
+	/**
+	 * creates change paths from a xml string (see svn diff --summarize --xml).
+	 * The paths are made relative to oldUrl.
+	 * @param cmdLineResults
+	 * @param oldUrl
+	 * @return
+	 */
+	public static ISVNLogMessageChangePath[] createChangePaths(byte[] cmdLineResults, String oldUrl)
+		throws SVNClientException {
+		Collection changePaths = new ArrayList();
+
+		try {
+			// Create a builder factory
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setValidating(false);
+
+			// Create the builder and parse the file
+			InputSource source = new InputSource(new ByteArrayInputStream(cmdLineResults));
+
+			Document doc = factory.newDocumentBuilder().parse(source);
+
+			// This is the XML we need to parse
+			//<?xml version="1.0" encoding="UTF-8"?>
+			//<diff>
+			//<paths>
+			//<path
+			//   item="modified"
+			//   props="none"
+			//   kind="file">svn://host/repos/project/trunk/src/Foo.java</path>
+			//</paths>
+			//</diff>
+
+			NodeList nodes = doc.getElementsByTagName("path");
+
+			for(int i = 0; i < nodes.getLength(); i++) {
+				Node pathNode = nodes.item(i);
+
+				Node itemAttribute = pathNode.getAttributes().getNamedItem("item");
+				if (itemAttribute == null) throw new Exception("'item' attribute expected on 'path'");
+				String item = itemAttribute.getNodeValue();
+
+				String path = pathNode.getFirstChild() == null ? "" : pathNode.getFirstChild().getNodeValue();
+
+				char action;
+				if ("added".equals(item)) {
+					action = 'A';
+				} else if ("deleted".equals(item)) {
+					action = 'D';
+				} else {
+					// "modified", or "none" when only the properties changed
+					action = 'M';
+				}
+
+				changePaths.add(new SVNLogMessageChangePath(relativize(path, oldUrl), null, null, action));
+			}
+		} catch (Exception e) {
+			throw new SVNClientException(e);
+		}
+
+		return (ISVNLogMessageChangePath[]) changePaths.toArray(new ISVNLogMessageChangePath[changePaths.size()]);
+	}
+
+	/**
+	 * the path below url, without leading '/'. svn prints the urls encoded,
+	 * they are decoded here.
+	 */
+	static String relativize(String path, String url) {
+		String decoded = decode(path);
+		String base = decode(url);
+		while (base.endsWith("/")) {
+			base = base.substring(0, base.length() - 1);
+		}
+		if (decoded.equals(base)) {
+			return "";
+		}
+		if (decoded.startsWith(base + "/")) {
+			return decoded.substring(base.length() + 1);
+		}
+		return decoded;
+	}
+
+	private static String decode(String s) {
+		if (s.indexOf('%') < 0) {
+			return s;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(s.length());
+			int i = 0;
+			while (i < s.length()) {
+				if (s.charAt(i) == '%' && i + 2 < s.length() && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))) {
+					bytes.write(Integer.parseInt(s.substring(i + 1, i + 3), 16));
+					i += 3;
+				} else {
+					int next = s.indexOf('%', i + 1);
+					if (next < 0) {
+						next = s.length();
+					}
+					byte[] b = s.substring(i, next).getBytes("UTF-8");
+					bytes.write(b, 0, b.length);
+					i = next;
+				}
+			}
+			return bytes.toString("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// It is guaranteed to be there!
+			return s;
+		}
+	}
+
+	private static boolean isHex(char c) {
+		return Character.digit(c, 16) >= 0;
+	}
+
+}
@@ -16,25 +16,24 @@
 package org.tigris.subversion.svnclientadapter.commandline;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.StringTokenizer;
 
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageCallback;
 import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
 import org.tigris.subversion.svnclientadapter.SVNClientException;
 import org.tigris.subversion.svnclientadapter.SVNLogMessageChangePath;
 import org.tigris.subversion.svnclientadapter.SVNRevision;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
 /**
  * <p>Implements a Log message using "svn log".</p>
@@ -155,18 +154,30 @@ class CmdLineLogMessage extends CmdLineXmlCommand implements ISVNLogMessage {
      * @return
      */
 	public static CmdLineLogMessage[] createLogMessages(byte[] cmdLineResults) throws SVNClientException {
-		Collection logMessages = new ArrayList();
-		
+		final Collection logMessages = new ArrayList();
+		parseLogMessages(new ByteArrayInputStream(cmdLineResults), new ISVNLogMessageCallback() {
+			public void singleMessage(ISVNLogMessage message) {
+				logMessages.add(message);
+			}
+		});
+		return (CmdLineLogMessage[]) logMessages.toArray(new CmdLineLogMessage[logMessages.size()]);
+	}
+
+    /**
+     * reads the output of svn log --xml [-v] with a pull parser and hands
+     * each log message to the callback as soon as its logentry element is
+     * complete. Only one message is held in memory at a time.
+     * @param stream the xml, the caller closes it
+     * @param callback
+     */
+	public static void parseLogMessages(InputStream stream, ISVNLogMessageCallback callback) throws SVNClientException {
+		XMLStreamReader reader = null;
 		try {
-			// Create a builder factory
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setValidating(false);
-    
-			// Create the builder and parse the file
-			InputSource source = new InputSource(new ByteArrayInputStream(cmdLineResults));
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			reader = factory.createXMLStreamReader(stream);
 
-			Document doc = factory.newDocumentBuilder().parse(source);
-			
 			// This is the XML we need to parse
 			// --verbose mode:
 			//			<logentry revision="5">
@@ -179,76 +190,64 @@ class CmdLineLogMessage extends CmdLineXmlCommand implements ISVNLogMessage {
 			//				<msg>This one is really really cool, too!</msg>
 			//			</logentry>
 			
-			// Not --verbose mode:
-			//			<logentry revision="5">
-			//				<author>Jesper</author>
-			//				<date>2005-06-18T10:42:52.338920Z</date>
-			//				<msg>This one is really really cool, too!</msg>
-			//			</logentry>
-
-			
-			NodeList nodes = doc.getElementsByTagName("logentry");
-			
-			for(int i = 0; i < nodes.getLength(); i++) {
-				Node logEntry = nodes.item(i);
-				
-				Element authorNode = getFirstNamedElement(logEntry, "author");
-				if (authorNode == null) throw new Exception("'author' tag expected under 'logentry'");
-				
-				Element dateNode = getNextNamedElement(authorNode, "date");
-				if (dateNode == null) throw new Exception("'date' tag expected under 'logentry'");
-
-				Element pathsNode = getNextNamedElement(dateNode, "paths");
-
-				Element msgNode = getNextNamedElement(pathsNode != null ? pathsNode : dateNode, "msg");
+			// Not --verbose mode: the same without <paths>
+			// The author is missing for anonymous commits.
 
-				Node revisionAttribute = logEntry.getAttributes().getNamedItem("revision");
-
-                SVNRevision.Number rev = Helper.toRevNum(revisionAttribute.getNodeValue());
-				String author = authorNode.getFirstChild().getNodeValue();
-				Date date = Helper.convertXMLDate(dateNode.getFirstChild().getNodeValue());
-
-				Node msgTextNode = msgNode.getFirstChild();
-                String msg;
-				if(msgTextNode != null)
-					msg = msgTextNode.getNodeValue();
-				else
+			SVNRevision.Number rev = null;
+			String author = "";
+			Date date = null;
+			String msg = "";
+			List paths = new ArrayList();
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					if ("logentry".equals(reader.getLocalName())) {
+						ISVNLogMessageChangePath[] logMessageChangePath = (ISVNLogMessageChangePath[])paths.toArray(new ISVNLogMessageChangePath[paths.size()]);
+						callback.singleMessage(new CmdLineLogMessage(rev, author, date, msg, logMessageChangePath));
+					}
+					continue;
+				}
+				if (event != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String name = reader.getLocalName();
+				if ("logentry".equals(name)) {
+					String revision = reader.getAttributeValue(null, "revision");
+					if (revision == null) throw new Exception("'revision' attribute expected on 'logentry'");
+					rev = Helper.toRevNum(revision);
+					author = "";
+					date = null;
 					msg = "";
-
-				List paths = new ArrayList();
-				Element pathNode = getFirstNamedElement(pathsNode, "path");
-				while (pathNode != null) {
-                	String path = pathNode.getFirstChild().getNodeValue();
-
-                	NamedNodeMap attributes = pathNode.getAttributes();
-                	char action = attributes.getNamedItem("action").getNodeValue().charAt(0);
-                	Node copyFromPathNode = attributes.getNamedItem("copyfrom-path");
-                	Node copyFromRevNode = attributes.getNamedItem("copyfrom-rev");
-                	String copyFromPath = null;
-                	if (copyFromPathNode != null) {
-                		copyFromPath = copyFromPathNode.getNodeValue();
-                	}
-                	SVNRevision.Number copyFromRev = null;
-                	if (copyFromRevNode != null) {
-                		copyFromRev = Helper.toRevNum(copyFromRevNode.getNodeValue());
-                	}
-                    paths.add(new SVNLogMessageChangePath(
-                            path, copyFromRev, copyFromPath, action));
-					
-                    pathNode = getNextNamedElement(pathNode, "path");
-                }
-				ISVNLogMessageChangePath[] logMessageChangePath = (ISVNLogMessageChangePath[])paths.toArray(new ISVNLogMessageChangePath[paths.size()]);
-					
-                CmdLineLogMessage logMessage = new CmdLineLogMessage(rev, author, date, msg, logMessageChangePath);
-
-				logMessages.add(logMessage);				
+					paths.clear();
+				} else if ("author".equals(name)) {
+					author = reader.getElementText();
+				} else if ("date".equals(name)) {
+					date = Helper.convertXMLDate(reader.getElementText());
+				} else if ("msg".equals(name)) {
+					msg = reader.getElementText();
+				} else if ("path".equals(name)) {
+					String action = reader.getAttributeValue(null, "action");
+					if (action == null || action.length() == 0) throw new Exception("'action' attribute expected on 'path'");
+					String copyFromPath = reader.getAttributeValue(null, "copyfrom-path");
+					SVNRevision.Number copyFromRev = Helper.toRevNum(reader.getAttributeValue(null, "copyfrom-rev"));
+					paths.add(new SVNLogMessageChangePath(
+							reader.getElementText(), copyFromRev, copyFromPath, action.charAt(0)));
+				}
 			}
+		} catch (RuntimeException e) {
+			// thrown by the callback
+			throw e;
 		} catch (Exception e) {
 			throw new SVNClientException(e);
-		} 
-		
-		return (CmdLineLogMessage[]) logMessages.toArray(new CmdLineLogMessage[logMessages.size()]);		
-	
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					// the stream is closed by the caller
+				}
+			}
+		}
 	}
 
 	/* (non-Javadoc)
@@ -16,22 +16,22 @@
 package org.tigris.subversion.svnclientadapter.commandline;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.tigris.subversion.svnclientadapter.ISVNDirEntry;
+import org.tigris.subversion.svnclientadapter.ISVNDirEntryCallback;
 import org.tigris.subversion.svnclientadapter.SVNClientException;
 import org.tigris.subversion.svnclientadapter.SVNNodeKind;
 import org.tigris.subversion.svnclientadapter.SVNRevision;
 import org.tigris.subversion.svnclientadapter.SVNRevision.Number;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
 /**
  * <p>
@@ -74,18 +74,35 @@ class CmdLineRemoteDirEntry extends CmdLineXmlCommand implements ISVNDirEntry {
      * @return
      */
 	public static CmdLineRemoteDirEntry[] createDirEntries(byte[] cmdLineResults) throws SVNClientException {
-		Collection logMessages = new ArrayList();
-		
+		final Collection dirEntries = new ArrayList();
+		parseDirEntries(new ByteArrayInputStream(cmdLineResults), null, null, new ISVNDirEntryCallback() {
+			public boolean singleEntry(ISVNDirEntry entry) {
+				dirEntries.add(entry);
+				return true;
+			}
+		});
+		return (CmdLineRemoteDirEntry[]) dirEntries.toArray(new CmdLineRemoteDirEntry[dirEntries.size()]);
+	}
+
+    /**
+     * reads the output of svn list --xml [-R] with a pull parser and hands
+     * each entry to the callback as soon as its entry element is complete.
+     * Entries that do not match the filters are skipped without being
+     * created. Reading stops when the callback returns false.
+     * @param stream the xml, the caller closes it
+     * @param pathPrefix only the entries whose path starts with it, null for all
+     * @param kind only the entries of this kind, null for all
+     * @param callback
+     */
+	public static void parseDirEntries(InputStream stream, String pathPrefix, SVNNodeKind kind,
+			ISVNDirEntryCallback callback) throws SVNClientException {
+		XMLStreamReader reader = null;
 		try {
-			// Create a builder factory
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setValidating(false);
-    
-			// Create the builder and parse the file
-			InputSource source = new InputSource(new ByteArrayInputStream(cmdLineResults));
-
-			Document doc = factory.newDocumentBuilder().parse(source);
-			
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			reader = factory.createXMLStreamReader(stream);
+
 			// This is the XML we need to parse
 			//<?xml version="1.0" encoding="utf-8"?>
 			//<lists>
@@ -100,64 +117,82 @@ class CmdLineRemoteDirEntry extends CmdLineXmlCommand implements ISVNDirEntry {
 			//</entry>
 			//</list>
 			//</lists>
-			
-			NodeList nodes = doc.getElementsByTagName("entry");
-			
-			for(int i = 0; i < nodes.getLength(); i++) {
-				Node logEntry = nodes.item(i);
-
-				String kindName = logEntry.getAttributes().getNamedItem("kind").getNodeValue();
-
-				Element nameNode = getFirstNamedElement(logEntry, "name");
-				if (nameNode == null) throw new Exception("'name' tag expected under 'entry'");
-				String name = nameNode.getFirstChild().getNodeValue();
-
-				long size = 0;
-				Element sizeNode = null;
-				if ("file".equals(kindName))
-				{
-					sizeNode = getNextNamedElement(nameNode, "size");
-					if (sizeNode == null) throw new Exception("'size' tag expected under 'entry'");
-					size = Long.parseLong(sizeNode.getFirstChild().getNodeValue());
-				}
-				else
-				{
-					sizeNode = nameNode; 
+			// With -R the name is the path below the listed url.
+			// The author is missing for anonymous commits.
+
+			boolean inEntry = false;
+			SVNNodeKind entryKind = null;
+			String name = null;
+			long size = 0;
+			String revision = null;
+			String author = null;
+			String date = null;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					if (inEntry && "entry".equals(reader.getLocalName())) {
+						inEntry = false;
+						if (name == null) throw new Exception("'name' tag expected under 'entry'");
+						if (revision == null) throw new Exception("'commit' tag expected under 'entry'");
+						CmdLineRemoteDirEntry entry = new CmdLineRemoteDirEntry(name, Helper.toRevNum(revision),
+								size, author, Helper.convertXMLDate(date), entryKind);
+						if (!callback.singleEntry(entry)) {
+							return;
+						}
+					}
+					continue;
 				}
-
-				Element commitNode = getNextNamedElement(sizeNode, "commit");
-				if (commitNode == null) throw new Exception("'commit' tag expected under 'entry'");
-				Node revisionAttribute = commitNode.getAttributes().getNamedItem("revision");
-                SVNRevision.Number rev = Helper.toRevNum(revisionAttribute.getNodeValue());
-
-				Element authorNode = getFirstNamedElement(commitNode, "author");
-				if (authorNode == null) throw new Exception("'author' tag expected under 'commit'");
-				String author = authorNode.getFirstChild().getNodeValue();
-				
-				Element dateNode = getNextNamedElement(authorNode, "date");
-				if (dateNode == null) throw new Exception("'date' tag expected under 'commit'");
-				Date date = Helper.convertXMLDate(dateNode.getFirstChild().getNodeValue());
-
-				SVNNodeKind kind = SVNNodeKind.UNKNOWN;
-				if ("file".equals(kindName))
-				{
-					kind = SVNNodeKind.FILE;					
+				if (event != XMLStreamConstants.START_ELEMENT) {
+					continue;
 				}
-				else if ("dir".equals(kindName))
-				{
-					kind = SVNNodeKind.DIR;
+				String element = reader.getLocalName();
+				if ("entry".equals(element)) {
+					entryKind = toNodeKind(reader.getAttributeValue(null, "kind"));
+					name = null;
+					size = 0;
+					revision = null;
+					author = null;
+					date = null;
+					inEntry = kind == null || kind.equals(entryKind);
+				} else if (!inEntry) {
+					// filtered out, nothing is kept until the next entry
+					continue;
+				} else if ("name".equals(element)) {
+					name = reader.getElementText();
+					inEntry = pathPrefix == null || name.startsWith(pathPrefix);
+				} else if ("size".equals(element)) {
+					size = Long.parseLong(reader.getElementText().trim());
+				} else if ("commit".equals(element)) {
+					revision = reader.getAttributeValue(null, "revision");
+				} else if ("author".equals(element)) {
+					author = reader.getElementText();
+				} else if ("date".equals(element)) {
+					date = reader.getElementText();
 				}
-
-				CmdLineRemoteDirEntry entry = new CmdLineRemoteDirEntry(name, rev, size, author, date, kind);
-
-				logMessages.add(entry);			
 			}
+		} catch (RuntimeException e) {
+			// thrown by the callback
+			throw e;
 		} catch (Exception e) {
 			throw new SVNClientException(e);
-		} 
-		
-		return (CmdLineRemoteDirEntry[]) logMessages.toArray(new CmdLineRemoteDirEntry[logMessages.size()]);		
-	
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					// the stream is closed by the caller
+				}
+			}
+		}
+	}
+
+	private static SVNNodeKind toNodeKind(String kindName) {
+		if ("file".equals(kindName)) {
+			return SVNNodeKind.FILE;
+		} else if ("dir".equals(kindName)) {
+			return SVNNodeKind.DIR;
+		}
+		return SVNNodeKind.UNKNOWN;
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,258 @@
+/*
+ *  Copyright(c) 2003-2004 by the authors indicated in the @author tags.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tigris.subversion.svnclientadapter.commandline;
+
+import java.io.File;
+import java.util.Date;
+
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNStatusKind;
+import org.tigris.subversion.svnclientadapter.SVNUrl;
+import org.tigris.subversion.svnclientadapter.SVNRevision.Number;
+
+/**
+ * <p>
+ * Implements a ISVNStatus using one entry of "svn status --xml -v".</p>
+ * The url, the node kind and the url copied from are not part of the
+ * status output. They are derived or filled in from "svn info" by
+ * {@link CmdLineXmlStatuses}.
+ */
+class CmdLineXmlStatus implements ISVNStatus {
+
+	private String path;
+	private File file;
+	private SVNStatusKind textStatus;
+	private SVNStatusKind propStatus;
+	private boolean copied;
+	private boolean switched;
+	private Number revision;
+	private Number lastChangedRevision;
+	private String lastCommitAuthor;
+	private Date lastChangedDate;
+	private String lockOwner;
+	private String lockComment;
+	private Date lockCreationDate;
+
+	private String url;
+	private SVNNodeKind nodeKind;
+	private SVNUrl urlCopiedFrom;
+
+	CmdLineXmlStatus(String path, SVNStatusKind textStatus, SVNStatusKind propStatus) {
+		this.path = path;
+		this.file = new File(path).getAbsoluteFile();
+		this.textStatus = textStatus;
+		this.propStatus = propStatus;
+	}
+
+	void setCopied(boolean copied) {
+		this.copied = copied;
+	}
+
+	boolean isSwitched() {
+		return switched;
+	}
+
+	void setSwitched(boolean switched) {
+		this.switched = switched;
+	}
+
+	void setRevision(Number revision) {
+		this.revision = revision;
+	}
+
+	void setLastCommit(Number lastChangedRevision, String lastCommitAuthor, Date lastChangedDate) {
+		this.lastChangedRevision = lastChangedRevision;
+		this.lastCommitAuthor = lastCommitAuthor;
+		this.lastChangedDate = lastChangedDate;
+	}
+
+	void setLock(String lockOwner, String lockComment, Date lockCreationDate) {
+		this.lockOwner = lockOwner;
+		this.lockComment = lockComment;
+		this.lockCreationDate = lockCreationDate;
+	}
+
+	/**
+	 * @return the url as printed by svn, still encoded
+	 */
+	String getUrlString() {
+		return url;
+	}
+
+	void setUrlString(String url) {
+		this.url = url;
+	}
+
+	void setNodeKind(SVNNodeKind nodeKind) {
+		this.nodeKind = nodeKind;
+	}
+
+	/**
+	 * takes the fields status does not give from the info of the same path
+	 * @param infoPart
+	 */
+	void setInfo(CmdLineInfoPart infoPart) {
+		if (infoPart.getUrl() != null) {
+			url = infoPart.getUrl().toString();
+		}
+		nodeKind = infoPart.getNodeKind();
+		urlCopiedFrom = infoPart.getCopyUrl();
+		if (revision == null) {
+			revision = infoPart.getRevision();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getTextStatus()
+	 */
+	public SVNStatusKind getTextStatus() {
+		return textStatus;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getPropStatus()
+	 */
+	public SVNStatusKind getPropStatus() {
+		return propStatus;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getUrlCopiedFrom()
+	 */
+	public SVNUrl getUrlCopiedFrom() {
+		return urlCopiedFrom;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getLastChangedDate()
+	 */
+	public Date getLastChangedDate() {
+		return lastChangedDate;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getLastChangedRevision()
+	 */
+	public Number getLastChangedRevision() {
+		return lastChangedRevision;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getLastCommitAuthor()
+	 */
+	public String getLastCommitAuthor() {
+		return lastCommitAuthor;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getNodeKind()
+	 */
+	public SVNNodeKind getNodeKind() {
+		return nodeKind;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getPath()
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return The absolute path to this item.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getRevision()
+	 */
+	public Number getRevision() {
+		return revision;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getUrl()
+	 */
+	public SVNUrl getUrl() {
+		return (url == null) ? null : Helper.toSVNUrl(url);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getRepositoryTextStatus()
+	 */
+	public SVNStatusKind getRepositoryTextStatus() {
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getRepositoryPropStatus()
+	 */
+	public SVNStatusKind getRepositoryPropStatus() {
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getConflictNew()
+	 */
+	public File getConflictNew() {
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getConflictOld()
+	 */
+	public File getConflictOld() {
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getConflictWorking()
+	 */
+	public File getConflictWorking() {
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#isCopied()
+	 */
+	public boolean isCopied() {
+		return copied;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getLockCreationDate()
+	 */
+	public Date getLockCreationDate() {
+		return lockCreationDate;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getLockOwner()
+	 */
+	public String getLockOwner() {
+		return lockOwner;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.tigris.subversion.svnclientadapter.ISVNStatus#getLockComment()
+	 */
+	public String getLockComment() {
+		return lockComment;
+	}
+}
@@ -0,0 +1,418 @@
+/*
+ *  Copyright(c) 2003-2004 by the authors indicated in the @author tags.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tigris.subversion.svnclientadapter.commandline;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.tigris.subversion.svnclientadapter.ISVNStatus;
+import org.tigris.subversion.svnclientadapter.SVNClientException;
+import org.tigris.subversion.svnclientadapter.SVNConstants;
+import org.tigris.subversion.svnclientadapter.SVNNodeKind;
+import org.tigris.subversion.svnclientadapter.SVNRevision;
+import org.tigris.subversion.svnclientadapter.SVNStatusKind;
+import org.tigris.subversion.svnclientadapter.SVNStatusUnversioned;
+
+/**
+ * Digests the output of <code>svn status --xml -v</code>.
+ * <p>
+ * The entries are read with a pull parser while svn writes them. Status
+ * gives everything but the url, the node kind and the url copied from.
+ * The url of an entry is derived from the url of its parent entry, the url
+ * of a top entry from the administrative area of its directory, and the
+ * node kind from the file on disk. Only the entries for which this is not
+ * possible are listed by {@link #getPathsNeedingInfo()}, they have to be
+ * completed with <code>svn info</code> using {@link #setInfoParts(CmdLineInfoPart[])}.
+ */
+class CmdLineXmlStatuses {
+
+	// characters svn leaves as they are in urls
+	private static final String URI_SAFE_CHARS = "!$&'()*+,-./:;=@_~";
+
+	private List statuses = new ArrayList();
+	private Map versioned = new HashMap();
+	private List needingInfo = new ArrayList();
+	// entries whose url is not the one of their parent plus their name
+	private Set ownUrls = new HashSet();
+
+	/**
+	 * @param stream the xml, the caller closes it
+	 */
+	CmdLineXmlStatuses(InputStream stream) throws SVNClientException {
+		parse(stream);
+		findPathsNeedingInfo();
+	}
+
+	private void parse(InputStream stream) throws SVNClientException {
+		XMLStreamReader reader = null;
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			reader = factory.createXMLStreamReader(stream);
+
+			// This is the XML we need to parse
+			//<status>
+			//<target path="project">
+			//<entry path="project/added.txt">
+			//<wc-status props="none" item="added" revision="0" copied="true">
+			//<lock>
+			//<token>opaquelocktoken:...</token>
+			//<owner>harry</owner>
+			//<comment>editing</comment>
+			//<created>2005-06-18T10:42:52.338920Z</created>
+			//</lock>
+			//</wc-status>
+			//</entry>
+			//<entry path="project/normal.txt">
+			//<wc-status props="normal" item="normal" revision="5" switched="true">
+			//<commit revision="4">
+			//<author>sally</author>
+			//<date>2005-06-18T10:42:52.338920Z</date>
+			//</commit>
+			//</wc-status>
+			//</entry>
+			//</target>
+			//</status>
+			// With -u a <repos-status> element follows <wc-status>.
+
+			CmdLineXmlStatus status = null;
+			boolean inWcStatus = false;
+			String entryPath = null;
+			SVNRevision.Number commitRevision = null;
+			String author = null;
+			Date date = null;
+			String lockOwner = null;
+			String lockComment = null;
+			Date lockCreated = null;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					String name = reader.getLocalName();
+					if ("wc-status".equals(name)) {
+						inWcStatus = false;
+					} else if ("entry".equals(name)) {
+						if (status != null) {
+							status.setLastCommit(commitRevision, author, date);
+							status.setLock(lockOwner, lockComment, lockCreated);
+						}
+						status = null;
+						entryPath = null;
+					}
+					continue;
+				}
+				if (event != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String name = reader.getLocalName();
+				if ("entry".equals(name)) {
+					entryPath = reader.getAttributeValue(null, "path");
+					if (entryPath == null) throw new Exception("'path' attribute expected on 'entry'");
+					commitRevision = null;
+					author = null;
+					date = null;
+					lockOwner = null;
+					lockComment = null;
+					lockCreated = null;
+				} else if ("wc-status".equals(name) && entryPath != null) {
+					inWcStatus = true;
+					String item = reader.getAttributeValue(null, "item");
+					if (item == null) throw new Exception("'item' attribute expected on 'wc-status'");
+					if ("unversioned".equals(item) || "ignored".equals(item) || "none".equals(item)) {
+						statuses.add(new SVNStatusUnversioned(new File(entryPath).getAbsoluteFile(), "ignored".equals(item)));
+						continue;
+					}
+					status = new CmdLineXmlStatus(entryPath, toStatusKind(item),
+							toPropStatusKind(reader.getAttributeValue(null, "props")));
+					status.setRevision(Helper.toRevNum(reader.getAttributeValue(null, "revision")));
+					status.setCopied("true".equals(reader.getAttributeValue(null, "copied")));
+					status.setSwitched("true".equals(reader.getAttributeValue(null, "switched")));
+					statuses.add(status);
+					if (status.isSwitched() || status.getTextStatus() == SVNStatusKind.EXTERNAL) {
+						ownUrls.add(status);
+					}
+					// the root of an external is listed again in its own target
+					CmdLineXmlStatus previous = (CmdLineXmlStatus) versioned.put(status.getFile(), status);
+					if (previous != null) {
+						ownUrls.add(previous);
+						ownUrls.add(status);
+					}
+				} else if (!inWcStatus) {
+					// the lock of <repos-status> is not the one of the working copy
+					continue;
+				} else if ("commit".equals(name)) {
+					commitRevision = Helper.toRevNum(reader.getAttributeValue(null, "revision"));
+				} else if ("author".equals(name)) {
+					author = reader.getElementText();
+				} else if ("date".equals(name)) {
+					date = Helper.convertXMLDate(reader.getElementText());
+				} else if ("owner".equals(name)) {
+					lockOwner = reader.getElementText();
+				} else if ("comment".equals(name)) {
+					lockComment = reader.getElementText();
+				} else if ("created".equals(name)) {
+					lockCreated = Helper.convertXMLDate(reader.getElementText());
+				}
+			}
+		} catch (Exception e) {
+			throw new SVNClientException(e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					// the stream is closed by the caller
+				}
+			}
+		}
+	}
+
+	private static SVNStatusKind toStatusKind(String item) {
+		if ("normal".equals(item))
+			return SVNStatusKind.NORMAL;
+		if ("added".equals(item))
+			return SVNStatusKind.ADDED;
+		if ("missing".equals(item) || "incomplete".equals(item))
+			return SVNStatusKind.MISSING;
+		if ("deleted".equals(item))
+			return SVNStatusKind.DELETED;
+		if ("replaced".equals(item))
+			return SVNStatusKind.REPLACED;
+		if ("modified".equals(item))
+			return SVNStatusKind.MODIFIED;
+		if ("merged".equals(item))
+			return SVNStatusKind.MERGED;
+		if ("conflicted".equals(item))
+			return SVNStatusKind.CONFLICTED;
+		if ("obstructed".equals(item))
+			return SVNStatusKind.OBSTRUCTED;
+		if ("external".equals(item))
+			return SVNStatusKind.EXTERNAL;
+		return SVNStatusKind.NONE;
+	}
+
+	private static SVNStatusKind toPropStatusKind(String props) {
+		if ("conflicted".equals(props))
+			return SVNStatusKind.CONFLICTED;
+		if ("modified".equals(props))
+			return SVNStatusKind.MODIFIED;
+		// "none" or "normal"
+		return SVNStatusKind.NORMAL;
+	}
+
+	/**
+	 * sets what can be known without svn info and remembers the others
+	 */
+	private void findPathsNeedingInfo() {
+		Map directoryUrls = new HashMap();
+		for (int i = 0; i < statuses.size(); i++) {
+			if (!(statuses.get(i) instanceof CmdLineXmlStatus)) {
+				continue;
+			}
+			CmdLineXmlStatus status = (CmdLineXmlStatus) statuses.get(i);
+			File file = status.getFile();
+			SVNStatusKind kind = status.getTextStatus();
+			boolean needsInfo = status.isCopied() || ownUrls.contains(status)
+				|| kind == SVNStatusKind.OBSTRUCTED;
+			if (!needsInfo) {
+				if (file.isDirectory()) {
+					status.setNodeKind(SVNNodeKind.DIR);
+				} else if (file.isFile()) {
+					status.setNodeKind(SVNNodeKind.FILE);
+				} else {
+					// missing or deleted : only svn knows what it was
+					needsInfo = true;
+				}
+			}
+			if (!needsInfo && !versioned.containsKey(file.getParentFile())) {
+				// a top entry, its url is read from the administrative area
+				String url;
+				if (file.isDirectory()) {
+					url = getDirectoryUrl(directoryUrls, file);
+				} else {
+					url = getDirectoryUrl(directoryUrls, file.getParentFile());
+					if (url != null) {
+						url = url + "/" + encode(file.getName());
+					}
+				}
+				if (url == null) {
+					needsInfo = true;
+				} else {
+					status.setUrlString(url);
+				}
+			}
+			if (needsInfo) {
+				needingInfo.add(status);
+			}
+		}
+	}
+
+	private static String getDirectoryUrl(Map directoryUrls, File dir) {
+		if (dir == null) {
+			return null;
+		}
+		if (!directoryUrls.containsKey(dir)) {
+			directoryUrls.put(dir, readDirectoryUrl(dir));
+		}
+		return (String) directoryUrls.get(dir);
+	}
+
+	/**
+	 * reads the url of a directory from the entries file of its
+	 * administrative area. Only the plain text format (format 7 and later)
+	 * is understood.
+	 * @return the url or null if it cannot be read
+	 */
+	private static String readDirectoryUrl(File dir) {
+		File entries = new File(dir, SVNConstants.SVN_DIRNAME + "/entries");
+		if (!entries.isFile()) {
+			return null;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(entries), "UTF-8"));
+			// format, then the entry of the directory itself :
+			// name (empty), kind, revision, url
+			String format = reader.readLine();
+			if (format == null || Integer.parseInt(format.trim()) < 7) {
+				return null;
+			}
+			String name = reader.readLine();
+			String kind = reader.readLine();
+			reader.readLine();
+			String url = reader.readLine();
+			if ("".equals(name) && "dir".equals(kind) && url != null && url.length() > 0) {
+				return url;
+			}
+			return null;
+		} catch (NumberFormatException e) {
+			// xml format of old working copies
+			return null;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// nothing left to do
+				}
+			}
+		}
+	}
+
+	/**
+	 * encodes a path segment the way svn prints it in urls
+	 */
+	static String encode(String segment) {
+		StringBuffer sb = new StringBuffer(segment.length());
+		try {
+			byte[] bytes = segment.getBytes("UTF-8");
+			for (int i = 0; i < bytes.length; i++) {
+				int b = bytes[i] & 0xff;
+				if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+						|| (b < 0x80 && URI_SAFE_CHARS.indexOf(b) >= 0)) {
+					sb.append((char) b);
+				} else {
+					sb.append('%');
+					sb.append(Character.toUpperCase(Character.forDigit(b >> 4, 16)));
+					sb.append(Character.toUpperCase(Character.forDigit(b & 0xf, 16)));
+				}
+			}
+		} catch (UnsupportedEncodingException e) {
+			// It is guaranteed to be there!
+			return segment;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the paths of the entries that must be completed with svn info,
+	 * as given by svn status
+	 */
+	String[] getPathsNeedingInfo() {
+		String[] paths = new String[needingInfo.size()];
+		for (int i = 0; i < paths.length; i++) {
+			paths[i] = ((CmdLineXmlStatus) needingInfo.get(i)).getPath();
+		}
+		return paths;
+	}
+
+	/**
+	 * completes the entries with the output of svn info on
+	 * {@link #getPathsNeedingInfo()}
+	 * @param infoParts
+	 */
+	void setInfoParts(CmdLineInfoPart[] infoParts) {
+		Map infoPartsByFile = new HashMap(infoParts.length * 2);
+		for (int i = 0; i < infoParts.length; i++) {
+			infoPartsByFile.put(infoParts[i].getFile(), infoParts[i]);
+		}
+		for (int i = 0; i < needingInfo.size(); i++) {
+			CmdLineXmlStatus status = (CmdLineXmlStatus) needingInfo.get(i);
+			CmdLineInfoPart infoPart = (CmdLineInfoPart) infoPartsByFile.get(status.getFile());
+			if (infoPart != null) {
+				status.setInfo(infoPart);
+			}
+		}
+	}
+
+	/**
+	 * @return the statuses in the order of svn status, the urls of the
+	 * entries below another entry are derived here
+	 */
+	ISVNStatus[] toArray() {
+		for (int i = 0; i < statuses.size(); i++) {
+			if (statuses.get(i) instanceof CmdLineXmlStatus) {
+				resolveUrl((CmdLineXmlStatus) statuses.get(i));
+			}
+		}
+		return (ISVNStatus[]) statuses.toArray(new ISVNStatus[statuses.size()]);
+	}
+
+	private String resolveUrl(CmdLineXmlStatus status) {
+		if (status.getUrlString() != null || ownUrls.contains(status)) {
+			return status.getUrlString();
+		}
+		CmdLineXmlStatus parent = (CmdLineXmlStatus) versioned.get(status.getFile().getParentFile());
+		if (parent == null) {
+			return null;
+		}
+		String parentUrl = resolveUrl(parent);
+		if (parentUrl != null) {
+			status.setUrlString(parentUrl + "/" + encode(status.getFile().getName()));
+		}
+		return status.getUrlString();
+	}
+
+}
@@ -15,8 +15,10 @@
  */
 package org.tigris.subversion.svnclientadapter.commandline;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
@@ -223,6 +225,119 @@ abstract class CommandLine {
             notificationHandler.logCompleted(st.nextToken());
     }
     	
+	/**
+	 * Starts the process and returns its output while it is still
+	 * running, so that large outputs can be parsed without being
+	 * buffered first. The error stream is pumped in the background.
+	 * @param svnArguments The arguments to pass to the command-line
+	 * binary.
+	 * @return the output of the process; it must be closed by the caller.
+	 */
+	protected ProcessInputStream execStream(ArrayList svnArguments)
+        throws CmdLineException {
+		return new ProcessInputStream(execProcess(svnArguments));
+	}
+
+    /**
+     * The output of a running svn process. Reads are buffered and go
+     * straight to the process output. When the end is reached, what svn
+     * printed on its error stream is thrown as an <code>IOException</code>,
+     * so that a failed command is not mistaken for an empty output.
+     * Closing the stream before its end kills the process.
+     */
+    class ProcessInputStream extends FilterInputStream {
+        private final static int BUFFER_LENGTH = 8192;
+        private final Process process;
+        private final StreamPumper errPumper;
+        private boolean eof;
+        private boolean closed;
+
+        ProcessInputStream(Process process) {
+            super(new BufferedInputStream(process.getInputStream(), BUFFER_LENGTH));
+            this.process = process;
+            this.errPumper = new CharacterStreamPumper(process.getErrorStream(), false);
+            new Thread(errPumper).start();
+        }
+
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                end();
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int bytesRead = super.read(b, off, len);
+            if (bytesRead == -1) {
+                end();
+            }
+            return bytesRead;
+        }
+
+        private void end() throws IOException {
+            eof = true;
+            String errMessage = getErrorMessage();
+            if (errMessage.length() > 0) {
+                throw new IOException(errMessage);
+            }
+        }
+
+        private String getErrorMessage() {
+            try {
+                errPumper.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return errPumper.toString();
+        }
+
+        /**
+         * Closes the stream. The process is killed if its output has
+         * not been read to the end.
+         */
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!eof) {
+                process.destroy();
+            }
+            super.close();
+        }
+
+        /**
+         * Skips what is left of the output and waits for the process.
+         * Errors are only reported when the output has been read to its
+         * end, a process killed by {@link #close()} is not an error.
+         * @throws CmdLineException if svn printed an error
+         */
+        void waitFor() throws CmdLineException {
+            try {
+                if (!closed) {
+                    byte[] skipped = new byte[BUFFER_LENGTH];
+                    while (in.read(skipped, 0, skipped.length) != -1) {
+                        // the caller has all it needs
+                    }
+                    eof = true;
+                }
+                process.waitFor();
+            } catch (IOException e) {
+                throw new CmdLineException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            String errMessage = getErrorMessage();
+            if (eof && errMessage.length() > 0) {
+                CmdLineException e = new CmdLineException(errMessage);
+                notificationHandler.logException(e);
+                throw e;
+            }
+        }
+    }
+
     /**
      * Pulls all the data out of a stream.  Inspired by Ant's
      * StreamPumper (by Robert Field).
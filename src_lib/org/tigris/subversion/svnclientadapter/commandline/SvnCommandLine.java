@@ -140,9 +140,10 @@ public class SvnCommandLine extends CommandLine {
 	 * 
 	 * @param url Either the local path to a file, or URL
 	 *   to print the contents of.
-	 * @return An stream containing the contents of the file.
+	 * @return An stream containing the contents of the file, read while
+	 *   svn is running. Closing it before the end kills svn.
 	 */
-	InputStream cat(String url, String revision) throws CmdLineException {
+	ProcessInputStream cat(String url, String revision) throws CmdLineException {
         setCommand(ISVNNotifyListener.Command.CAT, false);
 		ArrayList args = new ArrayList();
 		args.add("cat");
@@ -151,8 +152,7 @@ public class SvnCommandLine extends CommandLine {
 		args.add(url);
 		addAuthInfo(args);
         addConfigInfo(args);
-		Process proc = execProcess(args);
-		return proc.getInputStream();
+		return execStream(args);
 	}
 
 	/**
@@ -345,6 +345,33 @@ public class SvnCommandLine extends CommandLine {
   		return proc.getInputStream();
 	}
 
+	/**
+	 * <p>
+	 * List the paths that differ between two paths, as xml
+	 * (svn diff --summarize --xml).</p>
+	 *
+	 */
+	byte[] diffSummarize(String oldPath, String oldRev, String newPath, String newRev, boolean recurse)
+		throws CmdLineException {
+        setCommand(ISVNNotifyListener.Command.DIFF, false);
+		ArrayList args = new ArrayList();
+		args.add("diff");
+		args.add("--summarize");
+		args.add("--xml");
+		if (!recurse) {
+			args.add("-N");
+		}
+		args.add("-r");
+		args.add(oldRev+":"+newRev);
+		args.add("--old");
+		args.add(oldPath);
+		args.add("--new");
+		args.add(newPath);
+		addAuthInfo(args);
+        addConfigInfo(args);
+		return execBytes(args, true);
+	}
+
 	/**
 	 * <p>
 	 * export files and directories from remote URL.</p>
@@ -422,14 +449,15 @@ public class SvnCommandLine extends CommandLine {
 
 	/**
 	 * <p>
-	 * List directory entries of a URL.</p>
+	 * List directory entries of a URL.
+	 * The output is read while svn is running.</p>
 	 * 
 	 * @param url Remote URL.
 	 * @param revision Revision to use. can be <tt>null</tt>
 	 *   Defaults to <tt>HEAD</tt>.
 	 * @param recursive Should this operation recurse into sub-directories
 	 */
-	byte[] list(String url, String revision, boolean recursive) throws CmdLineException {
+	ProcessInputStream listStream(String url, String revision, boolean recursive) throws CmdLineException {
         setCommand(ISVNNotifyListener.Command.LS, false);
 		ArrayList args = new ArrayList();
 		args.add("list");
@@ -442,7 +470,7 @@ public class SvnCommandLine extends CommandLine {
 		args.add(url);
 		addAuthInfo(args);
         addConfigInfo(args);		
-		return execBytes(args,false);
+		return execStream(args);
 	}
 
 	/**
@@ -489,6 +517,33 @@ public class SvnCommandLine extends CommandLine {
         return execBytes(args, true);
 	}
 
+	/**
+	 * <p>
+	 * Show the log messages for a set of revision(s) and/or file(s).</p>
+	 * <p> The xml output is returned while svn is still running, so that
+	 * it can be parsed without being buffered.
+	 * 
+	 * @param target Local path or URL.
+	 * @param revision Optional revision range to get log
+	 *   messages from.
+	 * @param verbose Whether to include the changed paths (-v)
+	 */
+	ProcessInputStream logStream(String target, String revision, boolean verbose) throws CmdLineException {
+        setCommand(ISVNNotifyListener.Command.LOG, false);
+		ArrayList args = new ArrayList();
+		args.add("log");
+		args.add("-r");
+		args.add(validRev(revision));
+		args.add(target);
+		args.add("--xml");
+		if (verbose) {
+			args.add("-v");
+		}
+		addAuthInfo(args);
+        addConfigInfo(args);
+        return execStream(args);
+	}
+
 	/**
 	 * <p>
 	 * Create a new directory under revision control.</p>
@@ -724,6 +779,26 @@ public class SvnCommandLine extends CommandLine {
             return ""; 
         }
         setCommand(ISVNNotifyListener.Command.STATUS, false);
+		return execString(statusArguments(path, descend, allEntries, checkUpdates),false);
+	}
+
+	/**
+	 * <p>
+	 * Print the status of working copy files and directories as xml.
+	 * The output is read while svn is running.</p>
+	 *   
+	 * @param path Local paths of resources to get status of, at least one.
+	 * @param allEntries if false, only interesting entries will be get (local mods and/or out-of-date).
+	 * @param checkUpdates Check for updates on server.
+	 */
+	ProcessInputStream statusStream(String path[], boolean descend, boolean allEntries, boolean checkUpdates) throws CmdLineException {
+        setCommand(ISVNNotifyListener.Command.STATUS, false);
+		ArrayList args = statusArguments(path, descend, allEntries, checkUpdates);
+		args.add(1, "--xml");
+		return execStream(args);
+	}
+
+	private ArrayList statusArguments(String path[], boolean descend, boolean allEntries, boolean checkUpdates) {
 		ArrayList args = new ArrayList();
 		args.add("status");
         args.add("-v");
@@ -744,7 +819,7 @@ public class SvnCommandLine extends CommandLine {
 		
         addAuthInfo(args);  
         addConfigInfo(args);        
-		return execString(args,false);
+		return args;
 	}
 
 	/**
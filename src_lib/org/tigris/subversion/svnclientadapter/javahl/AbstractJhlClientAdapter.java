@@ -20,8 +20,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.tigris.subversion.javahl.ClientException;
+import org.tigris.subversion.javahl.Depth;
+import org.tigris.subversion.javahl.DiffSummary;
+import org.tigris.subversion.javahl.DiffSummaryReceiver;
 import org.tigris.subversion.javahl.Info;
 import org.tigris.subversion.javahl.Info2;
 import org.tigris.subversion.javahl.PromptUserPassword;
@@ -36,6 +41,7 @@ import org.tigris.subversion.svnclientadapter.ISVNAnnotations;
 import org.tigris.subversion.svnclientadapter.ISVNDirEntry;
 import org.tigris.subversion.svnclientadapter.ISVNInfo;
 import org.tigris.subversion.svnclientadapter.ISVNLogMessage;
+import org.tigris.subversion.svnclientadapter.ISVNLogMessageChangePath;
 import org.tigris.subversion.svnclientadapter.ISVNNotifyListener;
 import org.tigris.subversion.svnclientadapter.ISVNPromptUserPassword;
 import org.tigris.subversion.svnclientadapter.ISVNProperty;
@@ -976,6 +982,34 @@ public abstract class AbstractJhlClientAdapter extends AbstractClientAdapter {
 		}
 	}
 
+    /**
+     * get the content of a file, the url is looked up at pegRevision
+     * @param url
+     * @param revision
+     * @param pegRevision
+     */
+	public InputStream getContent(SVNUrl url, SVNRevision revision, SVNRevision pegRevision)
+		throws SVNClientException {
+		try {
+			notificationHandler.setCommand(
+				ISVNNotifyListener.Command.CAT);
+            notificationHandler.logCommandLine(
+                            "cat -r "
+                                + revision.toString()
+                                + " "
+                                + url.toString()
+                                + "@"
+                                + pegRevision.toString());
+			notificationHandler.setBaseDir();
+
+			byte[] contents = svnClient.fileContent(url.toString(), JhlConverter.convert(revision), JhlConverter.convert(pegRevision));
+			return new ByteArrayInputStream(contents);
+		} catch (ClientException e) {
+			notificationHandler.logException(e);
+			throw new SVNClientException(e);
+		}
+	}
+
 
 	/*
 	 * (non-Javadoc)
@@ -1305,6 +1339,44 @@ public abstract class AbstractJhlClientAdapter extends AbstractClientAdapter {
         diff(url,oldUrlRevision,url,newUrlRevision,outFile,recurse);                     
     }
 
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#diffSummarize(org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, org.tigris.subversion.svnclientadapter.SVNUrl, org.tigris.subversion.svnclientadapter.SVNRevision, boolean)
+     */
+    public ISVNLogMessageChangePath[] diffSummarize(SVNUrl oldUrl, SVNRevision oldUrlRevision,
+                     SVNUrl newUrl, SVNRevision newUrlRevision,
+                     boolean recurse) throws SVNClientException {
+        try {
+            notificationHandler.setCommand(ISVNNotifyListener.Command.DIFF);
+
+            if (newUrl == null)
+                newUrl = oldUrl;
+            if (oldUrlRevision == null)
+                oldUrlRevision = SVNRevision.HEAD;
+            if (newUrlRevision == null)
+                newUrlRevision = SVNRevision.HEAD;
+
+            String commandLine = "diff --summarize ";
+            if (!recurse)
+                commandLine += "-N ";
+            commandLine += oldUrl+"@"+oldUrlRevision+" "+newUrl+"@"+newUrlRevision;
+            notificationHandler.logCommandLine(commandLine);
+			notificationHandler.setBaseDir();
+
+            final List changePaths = new ArrayList();
+            svnClient.diffSummarize(oldUrl.toString(), JhlConverter.convert(oldUrlRevision),
+                    newUrl.toString(), JhlConverter.convert(newUrlRevision),
+                    Depth.infinityOrFiles(recurse), null, true, new DiffSummaryReceiver() {
+                public void onSummary(DiffSummary summary) {
+                    changePaths.add(JhlConverter.convert(summary));
+                }
+            });
+            return (ISVNLogMessageChangePath[]) changePaths.toArray(new ISVNLogMessageChangePath[changePaths.size()]);
+        } catch (ClientException e) {
+            notificationHandler.logException(e);
+            throw new SVNClientException(e);
+        }
+    }
+
     private ISVNAnnotations annotate(String target, SVNRevision revisionStart, SVNRevision revisionEnd)
     	throws SVNClientException
 	{
@@ -1701,4 +1773,11 @@ public abstract class AbstractJhlClientAdapter extends AbstractClientAdapter {
 			throw new SVNClientException(e);
 		}		
 	}
+
+    /* (non-Javadoc)
+     * @see org.tigris.subversion.svnclientadapter.ISVNClientAdapter#dispose()
+     */
+    public void dispose() {
+        svnClient.dispose();
+    }
 }
@@ -18,6 +18,7 @@ package org.tigris.subversion.svnclientadapter.javahl;
 import java.util.logging.Logger;
 
 import org.tigris.subversion.javahl.ChangePath;
+import org.tigris.subversion.javahl.DiffSummary;
 import org.tigris.subversion.javahl.DirEntry;
 import org.tigris.subversion.javahl.Lock;
 import org.tigris.subversion.javahl.LogMessage;
@@ -194,6 +195,25 @@ public class JhlConverter {
         }
         return jhlChangePaths;
     }
+
+    /**
+     * a summarized difference as a change path, the same way the command line
+     * adapter reports it: the path relative to the old url, the action
+     * 'A'dded, 'D'eleted or 'M'odified (content or properties)
+     */
+    static ISVNLogMessageChangePath convert(DiffSummary summary) {
+        char action;
+        if (DiffSummary.DiffKind.ADDED.equals(summary.getDiffKind()))
+            action = 'A';
+        else if (DiffSummary.DiffKind.DELETED.equals(summary.getDiffKind()))
+            action = 'D';
+        else
+            action = 'M';
+        String path = summary.getPath();
+        while (path.startsWith("/"))
+            path = path.substring(1);
+        return new SVNLogMessageChangePath(path, null, null, action);
+    }
     
     public static SVNScheduleKind convertScheduleKind(int kind) {
         switch (kind) {
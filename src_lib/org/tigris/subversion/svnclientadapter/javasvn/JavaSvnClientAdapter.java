@@ -124,5 +124,13 @@ public class JavaSvnClientAdapter extends AbstractJhlClientAdapter {
         return true;
     }
 
+    public void dispose() {
+        super.dispose();
+        if (svnAdmin != null) {
+            svnAdmin.dispose();
+            svnAdmin = null;
+        }
+    }
+
    
 }